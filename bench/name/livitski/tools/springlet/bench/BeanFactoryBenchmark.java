@@ -0,0 +1,92 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+import name.livitski.tools.springlet.BeanDefinitionTemplate;
+import name.livitski.tools.springlet.Launcher;
+import name.livitski.tools.springlet.ManagedLauncher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the setup of a launcher's bean container for configurations
+ * of various sizes, both by parsing the
+ * {@link Launcher#MAIN_BEAN_CONFIG_FILE configuration file} and by
+ * sharing the definitions of a {@link BeanDefinitionTemplate template}. The configuration
+ * file is generated in a temporary directory that is placed on the
+ * thread's context class path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BeanFactoryBenchmark
+{
+ @Param({ "10", "100", "1000", "10000" })
+ public int commandCount;
+
+ @Setup(Level.Trial)
+ public void setUp() throws IOException
+ {
+  dir = File.createTempFile("springlet-bench", "");
+  if (!dir.delete() || !dir.mkdir())
+   throw new IOException("Could not create directory " + dir);
+  SyntheticApplication.writeConfiguration(dir, commandCount);
+  formerClassLoader = Thread.currentThread().getContextClassLoader();
+  Thread.currentThread().setContextClassLoader(new URLClassLoader(
+    new URL[] { dir.toURI().toURL() }, getClass().getClassLoader()));
+  template = BeanDefinitionTemplate.load();
+ }
+
+ @TearDown(Level.Trial)
+ public void tearDown()
+ {
+  Thread.currentThread().setContextClassLoader(formerClassLoader);
+  new File(dir, Launcher.MAIN_BEAN_CONFIG_FILE).delete();
+  dir.delete();
+ }
+
+ @Benchmark
+ public boolean parseConfiguration()
+ {
+  return new ManagedLauncher().containsBean(Launcher.BEAN_NAME_MAIN);
+ }
+
+ @Benchmark
+ public boolean copyTemplate()
+ {
+  return new ManagedLauncher(template).containsBean(Launcher.BEAN_NAME_MAIN);
+ }
+
+ private File dir;
+ private ClassLoader formerClassLoader;
+ private BeanDefinitionTemplate template;
+}
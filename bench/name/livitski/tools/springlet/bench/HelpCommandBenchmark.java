@@ -0,0 +1,86 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import name.livitski.tools.springlet.commands.HelpCommand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+/**
+ * Measures the generation of the {@link HelpCommand#usage() usage summary}
+ * for applications with various numbers of commands. The summary is
+ * written to a stream that discards it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HelpCommandBenchmark
+{
+ @Param({ "10", "100", "1000" })
+ public int commandCount;
+
+ @Setup(Level.Trial)
+ public void setUp()
+ {
+  final DefaultListableBeanFactory factory = SyntheticApplication.definitions(commandCount);
+  factory.preInstantiateSingletons();
+  help = new HelpCommand(null);
+  help.setBeanFactory(factory);
+  formerOut = System.out;
+  System.setOut(new PrintStream(new OutputStream()
+  {
+   @Override
+   public void write(int b)
+   {
+   }
+
+   @Override
+   public void write(byte[] b, int off, int len)
+   {
+   }
+  }));
+ }
+
+ @TearDown(Level.Trial)
+ public void tearDown()
+ {
+  System.setOut(formerOut);
+ }
+
+ @Benchmark
+ public void usage()
+ {
+  help.usage();
+ }
+
+ private HelpCommand help;
+ private PrintStream formerOut;
+}
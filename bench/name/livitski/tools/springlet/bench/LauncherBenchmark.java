@@ -0,0 +1,68 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import name.livitski.tools.springlet.BeanDefinitionTemplate;
+import name.livitski.tools.springlet.Launcher;
+import name.livitski.tools.springlet.ManagedLauncher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link Launcher#withArguments(String[]) command-line parsing}
+ * of long argument lists. The launcher and its command beans are set
+ * up once, so that only the parsing is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LauncherBenchmark
+{
+ @Param({ "10", "1000", "100000" })
+ public int argumentCount;
+
+ @Param({ "10", "1000" })
+ public int commandCount;
+
+ @Setup
+ public void setUp()
+ {
+  args = SyntheticApplication.commandLine(argumentCount, commandCount);
+  launcher = new ManagedLauncher(new BeanDefinitionTemplate(
+    SyntheticApplication.definitions(commandCount)));
+  if (0 != launcher.withArguments(args).getStatusCode())
+   throw new IllegalStateException("Synthetic command line was rejected");
+ }
+
+ @Benchmark
+ public Launcher withArguments()
+ {
+  return launcher.withArguments(args);
+ }
+
+ private String[] args;
+ private Launcher launcher;
+}
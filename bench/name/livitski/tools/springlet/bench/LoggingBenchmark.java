@@ -0,0 +1,76 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import name.livitski.tools.springlet.Logging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the construction of {@link Logging} objects, which
+ * obtain their loggers when created, and the cost of debug messages
+ * when the debug level is disabled, as it is by default.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggingBenchmark
+{
+ @Benchmark
+ public Logging construct()
+ {
+  return new Subject();
+ }
+
+ @Benchmark
+ public void disabledConcatenated()
+ {
+  subject.concatenated(arg);
+ }
+
+ @Benchmark
+ public void disabledParameterized()
+ {
+  subject.parameterized(arg);
+ }
+
+ /**
+  * A class that does its own logging.
+  */
+ public static class Subject extends Logging
+ {
+  public void concatenated(String arg)
+  {
+   log().debug("Processing argument " + arg + " with " + getClass());
+  }
+
+  public void parameterized(String arg)
+  {
+   debug("Processing argument {} with {}", arg, getClass());
+  }
+ }
+
+ private final Subject subject = new Subject();
+ private String arg = "--verbose";
+}
@@ -0,0 +1,54 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import name.livitski.tools.springlet.Metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures updates of {@link Metrics} shared by several threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class MetricsBenchmark
+{
+ @Benchmark
+ public void counterIncrement()
+ {
+  counter.increment();
+ }
+
+ @Benchmark
+ public void histogramRecord()
+ {
+  histogram.record(System.nanoTime() & 0xFFFFF);
+ }
+
+ private final Metrics.Counter counter = Metrics.getDefault().counter("bench", "counter");
+ private final Metrics.Histogram histogram = Metrics.getDefault().histogram("bench", "histogram");
+}
@@ -0,0 +1,134 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import name.livitski.tools.springlet.AbstractApplicationBean;
+import name.livitski.tools.springlet.ApplicationBean;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link AbstractApplicationBean#getStatusCode() status code}
+ * computation for composite applications shaped as a deep chain or a
+ * wide fan of dependencies. The last dependency in each tree has
+ * failed, so that the whole tree must be polled. The
+ * <code>afterChange</code> benchmarks report a status change of
+ * that dependency before each query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StatusCodeBenchmark
+{
+ @Param({ "1", "10", "100", "1000" })
+ public int size;
+
+ @Setup
+ public void setUp()
+ {
+  Node node = deepLeaf = new Node();
+  for (int i = 1; size > i; i++)
+   node = new Node(node);
+  deepRoot = node;
+  final ApplicationBean[] fan = new ApplicationBean[size];
+  for (int i = 0; size > i; i++)
+   fan[i] = new Node();
+  wideLeaf = (Node)fan[size - 1];
+  wideRoot = new Node(fan);
+  deepLeaf.status = Node.Status.FAILED;
+  wideLeaf.status = Node.Status.FAILED;
+ }
+
+ @Benchmark
+ public int deep()
+ {
+  return deepRoot.getStatusCode();
+ }
+
+ @Benchmark
+ public int wide()
+ {
+  return wideRoot.getStatusCode();
+ }
+
+ @Benchmark
+ public int deepAfterChange()
+ {
+  deepLeaf.changed();
+  return deepRoot.getStatusCode();
+ }
+
+ @Benchmark
+ public int wideAfterChange()
+ {
+  wideLeaf.changed();
+  return wideRoot.getStatusCode();
+ }
+
+ /**
+  * Application bean with fixed dependencies.
+  */
+ public static class Node extends AbstractApplicationBean<Node.Status>
+ {
+  @Override
+  public void run()
+  {
+  }
+
+  @Override
+  public Status getLocalStatus()
+  {
+   return status;
+  }
+
+  @Override
+  public ApplicationBean[] getDependencies()
+  {
+   return dependencies.clone();
+  }
+
+  public void changed()
+  {
+   statusChanged();
+  }
+
+  public Node(ApplicationBean... dependencies)
+  {
+   super(Status.OK);
+   this.dependencies = dependencies;
+  }
+
+  public enum Status
+  {
+   OK, FAILED
+  }
+
+  private final ApplicationBean[] dependencies;
+  private Status status = Status.OK;
+ }
+
+ private Node deepRoot, deepLeaf, wideRoot, wideLeaf;
+}
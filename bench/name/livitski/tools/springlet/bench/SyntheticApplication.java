@@ -0,0 +1,189 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ListIterator;
+
+import name.livitski.tools.springlet.AbstractApplicationBean;
+import name.livitski.tools.springlet.ApplicationBean;
+import name.livitski.tools.springlet.Command;
+import name.livitski.tools.springlet.Launcher;
+import name.livitski.tools.springlet.LazyApplicationBean;
+
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+
+/**
+ * Generates configurations of an application with a given number of
+ * commands for the benchmarks. Command number <code>i</code> is
+ * named <code>--c<em>i</em></code> and takes one argument.
+ * Arguments that are not claimed by commands go to the default handler.
+ */
+public class SyntheticApplication
+{
+ /**
+  * Registers the application's bean definitions with a container.
+  * @param commandCount the number of commands to define
+  * @return the container
+  */
+ public static DefaultListableBeanFactory definitions(int commandCount)
+ {
+  final DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+  factory.registerBeanDefinition(Launcher.BEAN_NAME_MAIN, definition(Main.class, false));
+  factory.registerBeanDefinition(Launcher.BEAN_NAME_DEFAULT_HANDLER, definition(Option.class, true));
+  for (int i = 0; commandCount > i; i++)
+   factory.registerBeanDefinition(commandBeanName(i), definition(Option.class, true));
+  return factory;
+ }
+
+ /**
+  * Writes the application's configuration file.
+  * @param dir the directory to write {@link Launcher#MAIN_BEAN_CONFIG_FILE} to
+  * @param commandCount the number of commands to define
+  */
+ public static void writeConfiguration(File dir, int commandCount) throws IOException
+ {
+  final PrintWriter out = new PrintWriter(new OutputStreamWriter(
+    new FileOutputStream(new File(dir, Launcher.MAIN_BEAN_CONFIG_FILE)), "UTF-8"));
+  try
+  {
+   out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+   out.println("<beans xmlns=\"http://www.springframework.org/schema/beans\">");
+   out.printf(" <bean id=\"%s\" class=\"%s\" />%n", Launcher.BEAN_NAME_MAIN, Main.class.getName());
+   writeCommand(out, Launcher.BEAN_NAME_DEFAULT_HANDLER);
+   for (int i = 0; commandCount > i; i++)
+    writeCommand(out, commandBeanName(i));
+   out.println("</beans>");
+  }
+  finally
+  {
+   out.close();
+  }
+ }
+
+ /**
+  * Generates a command line that alternates commands and positional
+  * arguments, so that both the command index and the default handler
+  * are exercised.
+  * @param length the number of arguments
+  * @param commandCount the number of commands the application defines
+  */
+ public static String[] commandLine(int length, int commandCount)
+ {
+  final String[] args = new String[length];
+  for (int i = 0; length > i; i++)
+   if (0 == i % 3 && 0 < commandCount && length > i + 1)
+   {
+    args[i] = Command.COMMAND_PREFIX + "c" + (i / 3 % commandCount);
+    args[++i] = "value" + i;
+   }
+   else
+    args[i] = "file" + i;
+  return args;
+ }
+
+ /**
+  * Command that consumes one argument.
+  */
+ public static class Option extends Command
+ {
+  @Override
+  public void process(ListIterator<String> args)
+  {
+   if (args.hasNext())
+    args.next();
+  }
+
+  @Override
+  public String getArgSpec()
+  {
+   return "value";
+  }
+
+  @Override
+  public String getSummary()
+  {
+   return "Consumes an argument for benchmarking.";
+  }
+
+  public Option(ApplicationBean app)
+  {
+   super(app);
+  }
+ }
+
+ /**
+  * Application bean that does nothing.
+  */
+ public static class Main extends AbstractApplicationBean<Main.Status>
+ {
+  @Override
+  public void run()
+  {
+  }
+
+  @Override
+  public Status getLocalStatus()
+  {
+   return Status.OK;
+  }
+
+  public Main()
+  {
+   super(Status.OK);
+  }
+
+  public enum Status
+  {
+   OK
+  }
+ }
+
+ private static String commandBeanName(int i)
+ {
+  return Launcher.BEAN_NAME_PREFIX_COMMAND + "c" + i;
+ }
+
+ private static GenericBeanDefinition definition(Class<?> beanClass, boolean command)
+ {
+  final GenericBeanDefinition definition = new GenericBeanDefinition();
+  definition.setBeanClass(beanClass);
+  if (command)
+  {
+   final GenericBeanDefinition handle = new GenericBeanDefinition();
+   handle.setBeanClass(LazyApplicationBean.class);
+   final ConstructorArgumentValues args = new ConstructorArgumentValues();
+   args.addIndexedArgumentValue(0, handle);
+   definition.setConstructorArgumentValues(args);
+  }
+  return definition;
+ }
+
+ private static void writeCommand(PrintWriter out, String beanName)
+ {
+  out.printf(" <bean id=\"%s\" class=\"%s\">%n", beanName, Option.class.getName());
+  out.printf("  <constructor-arg><bean class=\"%s\" /></constructor-arg>%n",
+    LazyApplicationBean.class.getName());
+  out.println(" </bean>");
+ }
+}
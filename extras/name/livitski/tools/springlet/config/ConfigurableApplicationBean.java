@@ -28,7 +28,8 @@ import name.livitski.tools.springlet.AbstractApplicationBean;
 
 /**
  * An application bean that manages its own {@link Configuration proper2-based}
- * configuration.
+ * configuration. Values of settings read by class are kept in a
+ * {@link #getSettingCache() cache} until the configuration changes.
  * @see ConfigurationHelper
  */
 public abstract class ConfigurableApplicationBean<Status extends Enum<Status>>
@@ -47,6 +48,7 @@ public abstract class ConfigurableApplicationBean<Status extends Enum<Status>>
  public void setConfig(Configuration config)
  {
   this.config = config;
+  settingCache.invalidate();
  }
 
  /**
@@ -70,6 +72,7 @@ public abstract class ConfigurableApplicationBean<Status extends Enum<Status>>
  {
   final Configuration config = getConfig();
   config.setConfigFile(configFile);
+  settingCache.invalidate();
  }
 
  public String getDefaultsResource()
@@ -80,6 +83,16 @@ public abstract class ConfigurableApplicationBean<Status extends Enum<Status>>
  public void setDefaultsResource(String defaultsResource)
  {
   getConfig().setDefaultsResource(defaultsResource);
+  settingCache.invalidate();
+ }
+
+ /**
+  * Returns the cache of this bean's setting values, which also
+  * reports the cache's statistics.
+  */
+ public SettingCache getSettingCache()
+ {
+  return settingCache;
  }
 
  @Override
@@ -93,13 +106,13 @@ public abstract class ConfigurableApplicationBean<Status extends Enum<Status>>
  protected <T, D extends AbstractSetting<D,T>> T readSetting(Class<D> clazz)
  	throws ConfigurationException
  {
-  return getConfig().readSetting(clazz);
+  return settingCache.readSetting(getConfig(), clazz);
  }
 
  protected <T, D extends AbstractSetting<D,T>> T readSetting(AbstractSetting<D,T> handler)
  	throws ConfigurationException
  {
-  return getConfig().readSetting(handler);
+  return settingCache.readSetting(getConfig(), handler);
  }
 
  /**
@@ -113,4 +126,5 @@ public abstract class ConfigurableApplicationBean<Status extends Enum<Status>>
 
  private BeanFactory beanFactory;
  private Configuration config;
+ private final SettingCache settingCache = new SettingCache();
 }
@@ -27,7 +27,8 @@ import name.livitski.tools.springlet.Logging;
  * A superclass for simple beans that provides logging and access to
  * {@link Configuration proper2-based} configuration. Inject a 
  * {@link ConfigurationHelper} to configure derived beans from
- * the command line.
+ * the command line. Values of settings read by class are kept in a
+ * {@link #getSettingCache() cache} until the configuration changes.
  * @see #setConfiguration(Configuration)
  */
 public class ConfigurableBean extends Logging
@@ -42,6 +43,7 @@ public class ConfigurableBean extends Logging
  public void setConfiguration(Configuration config)
  {
   this.config = config;
+  settingCache.invalidate();
  }
 
  public File getConfigFile()
@@ -57,19 +59,30 @@ public class ConfigurableBean extends Logging
  public void setConfigFile(File configFile)
  {
   getConfiguration().setConfigFile(configFile);
+  settingCache.invalidate();
+ }
+
+ /**
+  * Returns the cache of this bean's setting values, which also
+  * reports the cache's statistics.
+  */
+ public SettingCache getSettingCache()
+ {
+  return settingCache;
  }
 
  protected <T, D extends AbstractSetting<D,T>> T readSetting(Class<D> clazz)
  	throws ConfigurationException
  {
-  return getConfiguration().readSetting(clazz);
+  return settingCache.readSetting(getConfiguration(), clazz);
  }
 
  protected <T, D extends AbstractSetting<D,T>> T readSetting(AbstractSetting<D,T> handler)
  	throws ConfigurationException
  {
-  return getConfiguration().readSetting(handler);
+  return settingCache.readSetting(getConfiguration(), handler);
  }
 
  private Configuration config;
+ private final SettingCache settingCache = new SettingCache();
 }
\ No newline at end of file
@@ -0,0 +1,328 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.config;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import name.livitski.tools.proper2.ConfigurationException;
+import name.livitski.tools.springlet.Logging;
+
+/**
+ * Keeps the parsed contents of a configuration file in memory and
+ * reloads them when the file changes. The contents are kept as an
+ * immutable {@link Snapshot snapshot}, so that threads reading the
+ * settings neither wait for each other nor access the disk. A
+ * background thread watches the file's directory and, when the file
+ * changes, loads a new snapshot, replaces the current one, and
+ * notifies the {@link Listener listeners}. If the changed file cannot
+ * be loaded, the current snapshot remains in effect.
+ * @see ConfigurationHelper
+ */
+public class ConfigurationCache extends Logging
+{
+ /**
+  * Reads the configuration file.
+  */
+ public interface Loader
+ {
+  Properties load() throws ConfigurationException;
+ }
+
+ /**
+  * Receives notifications of configuration changes.
+  */
+ public interface Listener
+ {
+  /**
+   * Called by the watching thread after a new snapshot has replaced
+   * the previous one.
+   */
+  void configurationChanged(ConfigurationCache cache, Snapshot previous, Snapshot current);
+ }
+
+ /**
+  * Immutable contents of a configuration file.
+  */
+ public static final class Snapshot
+ {
+  /**
+   * Returns a new copy of the settings that the caller may modify.
+   */
+  public Properties getProperties()
+  {
+   final Properties properties = new Properties();
+   properties.putAll(settings);
+   return properties;
+  }
+
+  /**
+   * Returns an unmodifiable view of the settings.
+   */
+  public Map<String, String> getSettings()
+  {
+   return settings;
+  }
+
+  /**
+   * Returns the snapshot's number, which grows with every reload.
+   */
+  public long getVersion()
+  {
+   return version;
+  }
+
+  private Snapshot(Properties properties, long version)
+  {
+   final Map<String, String> settings = new HashMap<String, String>();
+   for (String name : properties.stringPropertyNames())
+    settings.put(name, properties.getProperty(name));
+   this.settings = Collections.unmodifiableMap(settings);
+   this.version = version;
+  }
+
+  private final Map<String, String> settings;
+  private final long version;
+ }
+
+ /**
+  * Returns the current snapshot, loading the file if this cache has
+  * not loaded it yet.
+  * @throws ConfigurationException if the file could not be loaded
+  * the first time
+  */
+ public Snapshot getSnapshot() throws ConfigurationException
+ {
+  Snapshot snapshot = current;
+  if (null == snapshot)
+   synchronized (this)
+   {
+    snapshot = current;
+    if (null == snapshot)
+    {
+     watch();
+     current = snapshot = new Snapshot(loader.load(), 0L);
+    }
+   }
+  return snapshot;
+ }
+
+ public File getFile()
+ {
+  return file;
+ }
+
+ /**
+  * Registers a listener unless it is already registered.
+  */
+ public void addListener(Listener listener)
+ {
+  listeners.addIfAbsent(listener);
+ }
+
+ public void removeListener(Listener listener)
+ {
+  listeners.remove(listener);
+ }
+
+ /**
+  * Stops watching the file. The cache keeps its current snapshot.
+  * The directory is no longer watched once all its caches are closed.
+  */
+ public void close()
+ {
+  final Path dir = getDirectory();
+  synchronized (watchedCaches)
+  {
+   final Watch watch = watchedCaches.get(dir);
+   if (null != watch && watch.caches.remove(this) && watch.caches.isEmpty())
+   {
+    watch.key.cancel();
+    watchedCaches.remove(dir);
+   }
+  }
+ }
+
+ /**
+  * @param file the configuration file
+  * @param loader reads the file
+  */
+ public ConfigurationCache(File file, Loader loader)
+ {
+  this.file = file.getAbsoluteFile();
+  this.loader = loader;
+ }
+
+ /**
+  * Loads a new snapshot and notifies listeners when the file changes.
+  */
+ void reload()
+ {
+  final Snapshot previous = current;
+  if (null == previous)
+   return;
+  final Snapshot snapshot;
+  try
+  {
+   snapshot = new Snapshot(loader.load(), previous.getVersion() + 1);
+  }
+  catch (ConfigurationException e)
+  {
+   warn("Could not reload configuration file {}, keeping the previous settings", file, e);
+   return;
+  }
+  catch (RuntimeException e)
+  {
+   warn("Could not reload configuration file {}, keeping the previous settings", file, e);
+   return;
+  }
+  current = snapshot;
+  info("Reloaded configuration file {}", file);
+  for (Listener listener : listeners)
+   try
+   {
+    listener.configurationChanged(this, previous, snapshot);
+   }
+   catch (RuntimeException e)
+   {
+    warn("Configuration listener {} failed", listener, e);
+   }
+ }
+
+ private void watch()
+ {
+  final Path dir = getDirectory();
+  try
+  {
+   synchronized (watchedCaches)
+   {
+    Watch watch = watchedCaches.get(dir);
+    if (null == watch)
+    {
+     watch = new Watch(dir.register(getWatchService(), ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+     watchedCaches.put(dir, watch);
+    }
+    watch.caches.add(this);
+   }
+  }
+  catch (IOException e)
+  {
+   warn("Could not watch {} for changes, the configuration will not be reloaded", file, e);
+  }
+ }
+
+ private Path getDirectory()
+ {
+  return file.getParentFile().toPath();
+ }
+
+ private static synchronized WatchService getWatchService() throws IOException
+ {
+  if (null == watchService)
+  {
+   watchService = FileSystems.getDefault().newWatchService();
+   final Thread watcher = new Thread(new Runnable() {
+    public void run()
+    {
+     processEvents();
+    }
+   }, "springlet-config-watcher");
+   watcher.setDaemon(true);
+   watcher.start();
+  }
+  return watchService;
+ }
+
+ private static void processEvents()
+ {
+  for (;;)
+  {
+   final WatchKey key;
+   try
+   {
+    key = watchService.take();
+   }
+   catch (InterruptedException e)
+   {
+    return;
+   }
+   final Path dir = (Path)key.watchable();
+   Watch watch = watchedCaches.get(dir);
+   if (null != watch && key != watch.key)
+    watch = null;
+   final Set<ConfigurationCache> changed = new LinkedHashSet<ConfigurationCache>();
+   for (WatchEvent<?> event : key.pollEvents())
+    if (null != watch)
+     for (ConfigurationCache cache : watch.caches)
+      if (OVERFLOW == event.kind()
+        || dir.resolve((Path)event.context()).equals(cache.file.toPath()))
+       changed.add(cache);
+   for (ConfigurationCache cache : changed)
+    cache.reload();
+   if (!key.reset() && null != watch)
+    watchedCaches.remove(dir, watch);
+  }
+ }
+
+ /**
+  * Registration of a directory with the watch service and the caches
+  * of files in that directory.
+  */
+ private static class Watch
+ {
+  Watch(WatchKey key)
+  {
+   this.key = key;
+  }
+
+  final WatchKey key;
+  final List<ConfigurationCache> caches = new CopyOnWriteArrayList<ConfigurationCache>();
+ }
+
+ private static WatchService watchService;
+ /**
+  * Changes are made while holding the map's lock, so that a directory
+  * is not registered and cancelled at the same time.
+  */
+ private static final ConcurrentMap<Path, Watch> watchedCaches
+  = new ConcurrentHashMap<Path, Watch>();
+
+ private final File file;
+ private final Loader loader;
+ private volatile Snapshot current;
+ private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+}
@@ -33,6 +33,10 @@ import name.livitski.tools.springlet.commands.ConfigCommand;
  * This object must be instantiated inside the
  * {@link Launcher#MAIN_BEAN_CONFIG_FILE Springlet container}
  * that contains the {@link ConfigCommand} object.
+ * The file is read once and kept in a {@link ConfigurationCache},
+ * which reloads it when it changes. Register a
+ * {@link #addConfigurationListener(ConfigurationCache.Listener) listener}
+ * to learn about the changes.
  */
 public class ConfigurationHelper extends Configuration
 	implements BeanFactoryAware
@@ -50,11 +54,74 @@ public class ConfigurationHelper extends Configuration
   return configFile;
  }
 
+ @Override
+ public void setConfigFile(File configFile)
+ {
+  super.setConfigFile(configFile);
+  synchronized (this)
+  {
+   if (null != cache)
+   {
+    cache.close();
+    cache = null;
+   }
+  }
+ }
+
+ /**
+  * Returns the cache of the configuration file's contents.
+  * @return the cache or <code>null</code> if there is no
+  * configuration file
+  */
+ public ConfigurationCache getCache()
+ {
+  ConfigurationCache cache = this.cache;
+  if (null == cache)
+   synchronized (this)
+   {
+    cache = this.cache;
+    final File file = null == cache ? getConfigFile() : null;
+    if (null != file)
+     this.cache = cache = new ConfigurationCache(file, new ConfigurationCache.Loader() {
+      public Properties load() throws ConfigurationException
+      {
+       return ConfigurationHelper.super.readConfigurationFromFile();
+      }
+     });
+   }
+  return cache;
+ }
+
+ /**
+  * Returns the cache of the configuration file's contents without
+  * creating it.
+  * @return the cache or <code>null</code> if it has not been created
+  * since the configuration file was last set
+  */
+ ConfigurationCache getCurrentCache()
+ {
+  return cache;
+ }
+
+ /**
+  * Registers an object to be notified when the configuration file
+  * changes. Listeners stay registered until the configuration file
+  * is {@link #setConfigFile(File) replaced}.
+  */
+ public void addConfigurationListener(ConfigurationCache.Listener listener)
+ {
+  final ConfigurationCache cache = getCache();
+  if (null != cache)
+   cache.addListener(listener);
+ }
+
  @Override
  protected Properties readConfigurationFromFile() throws ConfigurationException
  {
-  getConfigFile();
-  return super.readConfigurationFromFile();
+  final ConfigurationCache cache = getCache();
+  if (null == cache)
+   return super.readConfigurationFromFile();
+  return cache.getSnapshot().getProperties();
  }
 
  @Override
@@ -72,4 +139,5 @@ public class ConfigurationHelper extends Configuration
  }
 
  private BeanFactory beanFactory;
+ private volatile ConfigurationCache cache;
 }
@@ -0,0 +1,229 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import name.livitski.tools.proper2.AbstractSetting;
+import name.livitski.tools.proper2.Configuration;
+import name.livitski.tools.proper2.ConfigurationException;
+import name.livitski.tools.springlet.Logging;
+
+/**
+ * Keeps the values of settings read from a {@link Configuration},
+ * so that each setting is looked up and converted to its type only once.
+ * Values are keyed by the setting's class. Settings read through
+ * handler objects are not cached, since handlers are usually created
+ * for each read and may differ in their state.
+ * The cached values belong to the configuration they were read from,
+ * and are discarded when a different configuration is passed in.
+ * Owners of the cache should still {@link #invalidate() invalidate} it
+ * when they change their configuration in place. When the configuration
+ * is a {@link ConfigurationHelper}, the cache also invalidates itself
+ * whenever the helper reloads or replaces the configuration file.
+ * The cache counts its hits and misses to help confirm that settings
+ * are not being converted repeatedly.
+ * @see ConfigurableBean
+ * @see ConfigurableApplicationBean
+ */
+public class SettingCache extends Logging implements ConfigurationCache.Listener
+{
+ /**
+  * Returns the value of a setting, reading it from a configuration
+  * if it is not cached.
+  */
+ public <T, D extends AbstractSetting<D,T>> T readSetting(Configuration config, Class<D> clazz)
+ 	throws ConfigurationException
+ {
+  final ConcurrentMap<Object, Object> values = valuesOf(config);
+  final Object cached = values.get(clazz);
+  if (null != cached)
+   return hit(cached);
+  return miss(values, clazz, config.readSetting(clazz));
+ }
+
+ /**
+  * Reads the value of a setting from a configuration through a
+  * handler object, without caching it. The read is counted as a
+  * {@link #getMissCount() miss}.
+  */
+ public <T, D extends AbstractSetting<D,T>> T readSetting(Configuration config,
+   AbstractSetting<D,T> handler)
+ 	throws ConfigurationException
+ {
+  misses.incrementAndGet();
+  return config.readSetting(handler);
+ }
+
+ /**
+  * Discards the cached values.
+  */
+ public void invalidate()
+ {
+  synchronized (this)
+  {
+   stopListening(values);
+   values = new Values(null, null);
+  }
+  invalidations.incrementAndGet();
+  debug("Setting cache invalidated, {}", this);
+ }
+
+ public void configurationChanged(ConfigurationCache cache,
+   ConfigurationCache.Snapshot previous, ConfigurationCache.Snapshot current)
+ {
+  synchronized (this)
+  {
+   final Values values = this.values;
+   if (cache != values.watched)
+    return;
+   this.values = new Values(values.source, values.watched);
+  }
+  invalidations.incrementAndGet();
+  debug("Configuration file {} changed, {}", cache.getFile(), this);
+ }
+
+ /**
+  * Returns the number of reads answered from this cache.
+  */
+ public long getHitCount()
+ {
+  return hits.get();
+ }
+
+ /**
+  * Returns the number of reads that had to query the configuration.
+  */
+ public long getMissCount()
+ {
+  return misses.get();
+ }
+
+ /**
+  * Returns the number of times the cached values were discarded.
+  */
+ public long getInvalidationCount()
+ {
+  return invalidations.get();
+ }
+
+ /**
+  * Returns the number of settings cached.
+  */
+ public int size()
+ {
+  return values.settings.size();
+ }
+
+ @Override
+ public String toString()
+ {
+  return "setting cache with " + size() + " value(s), " + getHitCount() + " hit(s), "
+    + getMissCount() + " miss(es), " + getInvalidationCount() + " invalidation(s)";
+ }
+
+ @SuppressWarnings("unchecked")
+ private <T> T hit(Object cached)
+ {
+  hits.incrementAndGet();
+  return NULL == cached ? null : (T)cached;
+ }
+
+ /**
+  * Stores a value in the map that was current when the read began,
+  * so that values read before an invalidation are not kept after it.
+  */
+ private <T> T miss(ConcurrentMap<Object, Object> values, Object key, T value)
+ {
+  misses.incrementAndGet();
+  values.put(key, null == value ? NULL : value);
+  return value;
+ }
+
+ /**
+  * Returns the values read from a configuration, discarding the
+  * cached values if they were read from another configuration or
+  * configuration file.
+  */
+ private ConcurrentMap<Object, Object> valuesOf(Configuration config)
+ {
+  Values values = this.values;
+  if (values.isOf(config))
+   return values.settings;
+  synchronized (this)
+  {
+   values = this.values;
+   if (values.isOf(config))
+    return values.settings;
+   stopListening(values);
+   ConfigurationCache watched = null;
+   if (config instanceof ConfigurationHelper)
+   {
+    watched = ((ConfigurationHelper)config).getCache();
+    if (null != watched)
+     watched.addListener(this);
+   }
+   if (null != values.source)
+   {
+    invalidations.incrementAndGet();
+    debug("Configuration replaced, {}", this);
+   }
+   this.values = values = new Values(config, watched);
+  }
+  return values.settings;
+ }
+
+ private void stopListening(Values values)
+ {
+  if (null != values.watched)
+   values.watched.removeListener(this);
+ }
+
+ /**
+  * Cached values along with the configuration they were read from.
+  */
+ private static class Values
+ {
+  boolean isOf(Configuration config)
+  {
+   return source == config && (!(config instanceof ConfigurationHelper)
+     || watched == ((ConfigurationHelper)config).getCurrentCache());
+  }
+
+  Values(Configuration source, ConfigurationCache watched)
+  {
+   this.source = source;
+   this.watched = watched;
+  }
+
+  final Configuration source;
+  /**
+   * The cache of the configuration file that this object listens to.
+   */
+  final ConfigurationCache watched;
+  final ConcurrentMap<Object, Object> settings = new ConcurrentHashMap<Object, Object>();
+ }
+
+ private static final Object NULL = new Object();
+
+ private volatile Values values = new Values(null, null);
+ private final AtomicLong hits = new AtomicLong();
+ private final AtomicLong misses = new AtomicLong();
+ private final AtomicLong invalidations = new AtomicLong();
+}
@@ -16,17 +16,20 @@
  */
 package name.livitski.tools.springlet;
 
+import org.springframework.beans.factory.BeanNameAware;
+
 /**
  * Convenience class that implements functionality common to
  * Springlet application beans. This includes poolable enumerated
  * {@link #getLocalStatus() status codes}, dependency management,
- * and {@link Logging}.
+ * and {@link Logging}. Metrics recorded by a bean are tagged with
+ * its name in the container.
  * @param <Status> enumerated type that lists
  * {@link #getLocalStatus() local status values} this application
  * bean may return
  */
 public abstract class AbstractApplicationBean<Status extends Enum<Status>> extends Logging
-	implements ApplicationBean, WithPoolableStatusCode
+	implements ApplicationBean, WithPoolableStatusCode, BeanNameAware
 {
  @Override
  public abstract void run();
@@ -44,12 +47,35 @@ public abstract class AbstractApplicationBean<Status extends Enum<Status>> exten
   * invocation of this method may return a new array, but the
   * contents of returned arrays must be the same once this object
   * is initialized. Default implementation returns an empty array.
+  * The framework calls this method when it first needs to know the
+  * dependencies, such as when {@link #getStatusCode() computing the
+  * status code}, and keeps the result. If the dependencies of an
+  * initialized bean change anyway, call {@link #dependenciesChanged()}.
   */
  public ApplicationBean[] getDependencies()
  {
   return new ApplicationBean[0];
  }
 
+ /**
+  * Runs the {@link #getDependencies() dependencies} of this bean using
+  * a {@link DependencyExecutor}, so that independent dependency beans
+  * run concurrently. Composite applications may call this method
+  * from their {@link #run()} implementations before doing their own
+  * work. When this bean is itself being run as a dependency of another
+  * bean, its dependencies have already completed, and this method
+  * returns immediately.
+  * @return the {@link #getStatusCode() status code} of this bean
+  * after its dependencies have completed, zero if they succeeded
+  * @see DependencyExecutor#PARALLELISM_PROPERTY
+  */
+ protected int runDependencies()
+ {
+  if (DependencyExecutor.isExecuting())
+   return getStatusCode();
+  return new DependencyExecutor().runDependencies(this);
+ }
+
  /**
   * Converts a status constant returned by {@link #getLocalStatus()}
   * of this bean or any {@link #getDependencies() dependency bean} into
@@ -70,6 +96,9 @@ public abstract class AbstractApplicationBean<Status extends Enum<Status>> exten
   * non-zero status does not implement {@link WithPoolableStatusCode},
   * the status code base incremented by one is returned. If all
   * dependencies have zero status codes, zero is returned.
+  * The code is computed anew on each call, while the status code
+  * bases of dependencies are computed once along with the
+  * {@link #getDependencies() dependencies}.
   * @return status code computed as explained above
   */
  @Override
@@ -78,20 +107,32 @@ public abstract class AbstractApplicationBean<Status extends Enum<Status>> exten
   final Status local = getLocalStatus();
   if (null != local && 0 < local.ordinal())
    return local.ordinal();
-  int base = getMaxLocalStatusCode();
-  final ApplicationBean[] deps = getDependencies();
-  for (int i = 0; deps.length > i; i++)
-  {
-   final int code = deps[i].getStatusCode();
-   assert 0 <= code;
-   if (0 == code)
-    base += getMaxStatusCodeFor(deps, i);
-   else if (deps[i] instanceof WithPoolableStatusCode)
-    return base + code;
-   else
-    return base + 1;
-  }
-  return 0;
+  return getDependenciesStatusCode(getStructure());
+ }
+
+ /**
+  * Discards the {@link #getDependencies() dependencies} and
+  * {@link #getMaxStatusCode() maximum status code} remembered by
+  * this bean.
+  */
+ protected void dependenciesChanged()
+ {
+  structure = null;
+ }
+
+ public void setBeanName(String name)
+ {
+  this.beanName = name;
+ }
+
+ /**
+  * Returns the name of this bean in the container, or the name of
+  * its class if it is not managed by a container.
+  */
+ @Override
+ protected String getMetricsScope()
+ {
+  return null == beanName ? super.getMetricsScope() : beanName;
  }
 
  /**
@@ -112,11 +153,7 @@ public abstract class AbstractApplicationBean<Status extends Enum<Status>> exten
   */
  public int getMaxStatusCode()
  {
-  int sum = getMaxLocalStatusCode();
-  final ApplicationBean[] deps = getDependencies();
-  for (int i = 0; deps.length > i; i++)
-   sum += getMaxStatusCodeFor(deps, i);
-  return sum;
+  return getStructure().maxStatusCode;
  }
 
  /**
@@ -138,29 +175,70 @@ public abstract class AbstractApplicationBean<Status extends Enum<Status>> exten
   * <strong>must have</strong> the {@link Enum#ordinal() ordinal number}
   * of zero.
   */
- @SuppressWarnings("unchecked")
  protected AbstractApplicationBean(Enum<Status> okStatus)
  {
   final Class<Status> enumClass = okStatus.getDeclaringClass();
   assert 0 == okStatus.ordinal();
-  try
+  this.stata = enumClass.getEnumConstants();
+ }
+
+ private int getDependenciesStatusCode(Structure structure)
+ {
+  final ApplicationBean[] deps = structure.dependencies;
+  for (int i = 0; deps.length > i; i++)
   {
-   this.stata = (Status[])(enumClass.getMethod("values").invoke(null));
+   final int code = deps[i].getStatusCode();
+   assert 0 <= code;
+   if (0 != code)
+    return structure.bases[i] + (deps[i] instanceof WithPoolableStatusCode ? code : 1);
   }
-  catch (Exception e)
+  return 0;
+ }
+
+ private Structure getStructure()
+ {
+  Structure structure = this.structure;
+  if (null == structure)
   {
-   throw new IllegalArgumentException(
-     "Cannot extract application status values from " + okStatus, e);
+   structure = new Structure(getDependencies(), getMaxLocalStatusCode());
+   this.structure = structure;
   }
+  return structure;
  }
 
- private int getMaxStatusCodeFor(final ApplicationBean[] deps, final int i)
+ private static int getMaxStatusCodeFor(ApplicationBean dep)
  {
-  if (deps[i] instanceof WithPoolableStatusCode)
-   return ((WithPoolableStatusCode)deps[i]).getMaxLocalStatusCode();
+  if (dep instanceof WithPoolableStatusCode)
+   return ((WithPoolableStatusCode)dep).getMaxLocalStatusCode();
   else
    return 1;
  }
 
- private Status[] stata; 
+ /**
+  * Immutable snapshot of this bean's dependencies with status code
+  * bases for each of them.
+  */
+ private static class Structure
+ {
+  Structure(ApplicationBean[] dependencies, int maxLocalStatusCode)
+  {
+   this.dependencies = dependencies.clone();
+   this.bases = new int[dependencies.length];
+   int base = maxLocalStatusCode;
+   for (int i = 0; dependencies.length > i; i++)
+   {
+    bases[i] = base;
+    base += getMaxStatusCodeFor(dependencies[i]);
+   }
+   this.maxStatusCode = base;
+  }
+
+  final ApplicationBean[] dependencies;
+  final int[] bases;
+  final int maxStatusCode;
+ }
+
+ private final Status[] stata;
+ private String beanName;
+ private volatile Structure structure;
 }
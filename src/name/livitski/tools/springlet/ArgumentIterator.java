@@ -0,0 +1,340 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over command-line arguments without keeping them all in
+ * memory. Arguments come from a source iterator, such as the
+ * <code>main</code> method's array, and from argument files that the
+ * source refers to:
+ * <ul>
+ * <li><code>@<em>file</em></code> is replaced with the arguments
+ * listed in the file, one per line, empty lines are ignored</li>
+ * <li><code>@-</code> is replaced with the arguments listed on the
+ * standard input, one per line</li>
+ * <li><code>@@<em>text</em></code> stands for the argument
+ * <code>@<em>text</em></code></li>
+ * </ul>
+ * Argument files may refer to other argument files. When
+ * {@link #setArgumentFiles(boolean) argument files are disabled},
+ * all arguments from the source are returned as they are. Files are read
+ * lazily as the arguments are consumed. The iterator can
+ * {@link #previous() step back} over a limited number of recently
+ * returned arguments, which is enough for {@link Command commands}
+ * to put back an argument they do not recognize. Elements cannot be
+ * added or removed. Argument files are closed once they are read to
+ * the end, or when this iterator is {@link #close() closed}.
+ * @see Launcher#withArguments(Iterator)
+ */
+public class ArgumentIterator implements ListIterator<String>
+{
+ /**
+  * Prefix of arguments that refer to argument files.
+  */
+ public static final String FILE_PREFIX = "@";
+
+ /**
+  * Argument that refers to the standard input.
+  */
+ public static final String STDIN_ARGUMENT = FILE_PREFIX + '-';
+
+ /**
+  * The default number of arguments that the iterator can step back over.
+  */
+ public static final int DEFAULT_LOOK_BACK = 32;
+
+ /**
+  * Thrown when an argument file cannot be read.
+  */
+ public static class ArgumentFileException extends IllegalArgumentException
+ {
+  public ArgumentFileException(String message, Throwable cause)
+  {
+   super(message, cause);
+  }
+
+  private static final long serialVersionUID = 1L;
+ }
+
+ /**
+  * Makes the arguments listed on the standard input the next ones
+  * this iterator returns, followed by the arguments that would
+  * otherwise be next.
+  */
+ public void includeStandardInput()
+ {
+  include(STDIN_ARGUMENT);
+ }
+
+ public boolean isArgumentFiles()
+ {
+  return argumentFiles;
+ }
+
+ /**
+  * @param argumentFiles whether arguments from the source that start
+  * with {@link #FILE_PREFIX} refer to argument files, <code>true</code>
+  * by default. When <code>false</code>, such arguments are returned
+  * as they are, while {@link #includeStandardInput()} still works.
+  */
+ public void setArgumentFiles(boolean argumentFiles)
+ {
+  this.argumentFiles = argumentFiles;
+ }
+
+ public boolean isStandardInputAvailable()
+ {
+  return standardInputAvailable;
+ }
+
+ /**
+  * @param standardInputAvailable whether arguments may be read from
+  * the standard input, <code>true</code> by default. Set this to
+  * <code>false</code> when the standard input is used for something
+  * else, and references to it will be reported as errors.
+  */
+ public void setStandardInputAvailable(boolean standardInputAvailable)
+ {
+  this.standardInputAvailable = standardInputAvailable;
+ }
+
+ public boolean hasNext()
+ {
+  return index < fetched || fetch();
+ }
+
+ public String next()
+ {
+  if (!hasNext())
+   throw new NoSuchElementException();
+  return window[slot(index++)];
+ }
+
+ public boolean hasPrevious()
+ {
+  return 0 < index && fetched - window.length < index;
+ }
+
+ public String previous()
+ {
+  if (!hasPrevious())
+   throw new NoSuchElementException(0 < index
+     ? "Cannot step back over more than " + window.length + " argument(s)"
+     : "No previous argument");
+  return window[slot(--index)];
+ }
+
+ public int nextIndex()
+ {
+  return (int)Math.min(index, Integer.MAX_VALUE);
+ }
+
+ public int previousIndex()
+ {
+  return nextIndex() - 1;
+ }
+
+ /**
+  * Replaces the argument last returned by {@link #next()}.
+  */
+ public void set(String arg)
+ {
+  if (0 == index)
+   throw new IllegalStateException("No argument has been returned");
+  window[slot(index - 1)] = arg;
+ }
+
+ public void remove()
+ {
+  throw new UnsupportedOperationException("Cannot remove command-line arguments");
+ }
+
+ public void add(String arg)
+ {
+  throw new UnsupportedOperationException("Cannot add command-line arguments");
+ }
+
+ /**
+  * Closes the argument files that are being read.
+  */
+ public void close()
+ {
+  while (!readers.isEmpty())
+   closeReader(readers.removeFirst());
+ }
+
+ /**
+  * @param source the arguments, which may refer to argument files
+  * @param lookBack the number of arguments this iterator can step back over
+  */
+ public ArgumentIterator(Iterator<String> source, int lookBack)
+ {
+  this.source = source;
+  this.window = new String[Math.max(lookBack, 1)];
+ }
+
+ /**
+  * @param source the arguments, which may refer to argument files
+  */
+ public ArgumentIterator(Iterator<String> source)
+ {
+  this(source, DEFAULT_LOOK_BACK);
+ }
+
+ /**
+  * Reads the next argument into the look-back window.
+  * @return whether there was another argument
+  */
+ private boolean fetch()
+ {
+  for (;;)
+  {
+   String arg = null;
+   if (!readers.isEmpty())
+   {
+    final Reader reader = readers.getFirst();
+    try
+    {
+     arg = reader.reader.readLine();
+    }
+    catch (IOException e)
+    {
+     throw new ArgumentFileException("Could not read arguments from "
+       + reader.name + ": " + e.getMessage(), e);
+    }
+    if (null == arg)
+    {
+     closeReader(readers.removeFirst());
+     continue;
+    }
+    if (0 == arg.length())
+     continue;
+   }
+   else if (source.hasNext())
+   {
+    arg = source.next();
+    if (!argumentFiles)
+    {
+     window[slot(fetched++)] = arg;
+     return true;
+    }
+   }
+   else
+    return false;
+   if (arg.startsWith(FILE_PREFIX + FILE_PREFIX))
+    arg = arg.substring(FILE_PREFIX.length());
+   else if (arg.startsWith(FILE_PREFIX) && FILE_PREFIX.length() < arg.length())
+   {
+    include(arg);
+    continue;
+   }
+   window[slot(fetched++)] = arg;
+   return true;
+  }
+ }
+
+ private void include(String arg)
+ {
+  if (MAX_NESTING <= readers.size())
+   throw new ArgumentFileException("Argument files are nested too deeply at " + arg, null);
+  if (STDIN_ARGUMENT.equals(arg))
+  {
+   if (!standardInputAvailable)
+    throw new ArgumentFileException(
+      "Arguments cannot be read from the standard input in this context", null);
+   readers.addFirst(new Reader("the standard input",
+     new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset())), false));
+   return;
+  }
+  final String name = arg.substring(FILE_PREFIX.length());
+  try
+  {
+   readers.addFirst(new Reader(name,
+     Files.newBufferedReader(Paths.get(name), Charset.defaultCharset()), true));
+  }
+  catch (IOException e)
+  {
+   throw new ArgumentFileException("Could not open argument file " + name
+     + ": " + e.getMessage(), e);
+  }
+  catch (RuntimeException e)
+  {
+   throw new ArgumentFileException("Invalid argument file name " + name, e);
+  }
+ }
+
+ private void closeReader(Reader reader)
+ {
+  if (!reader.closeable)
+   return;
+  try
+  {
+   reader.reader.close();
+  }
+  catch (IOException ignored) {}
+ }
+
+ private int slot(long position)
+ {
+  return (int)(position % window.length);
+ }
+
+ private static class Reader
+ {
+  Reader(String name, BufferedReader reader, boolean closeable)
+  {
+   this.name = name;
+   this.reader = reader;
+   this.closeable = closeable;
+  }
+
+  final String name;
+  final BufferedReader reader;
+  final boolean closeable;
+ }
+
+ private static final int MAX_NESTING = 16;
+
+ private final Iterator<String> source;
+ private final LinkedList<Reader> readers = new LinkedList<Reader>();
+ /**
+  * Recently fetched arguments, each stored at its position modulo
+  * the window's length.
+  */
+ private final String[] window;
+ /**
+  * Position of the argument that {@link #next()} will return.
+  */
+ private long index;
+ /**
+  * Number of arguments fetched from the sources.
+  */
+ private long fetched;
+ private boolean argumentFiles = true;
+ private boolean standardInputAvailable = true;
+}
@@ -0,0 +1,99 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+
+/**
+ * Extend this class to add a command whose action takes long enough
+ * to be worth overlapping with the processing of the rest of the
+ * command line, such as loading a file named by its argument. The
+ * command {@link #parse(ListIterator) consumes its arguments} as other
+ * commands do, and returns its action instead of performing it. A
+ * {@link Launcher} starts the action in the background and goes on
+ * with the command line. All actions are completed before
+ * {@link Launcher#withArguments(String[])} returns, so the application
+ * runs only after they succeed. When an action fails, its exception
+ * is reported the same way as if the command had thrown it from
+ * {@link #process(ListIterator)}, and the failures of actions are
+ * reported in the order of their commands on the command line.
+ * Actions of different commands may run concurrently with each other,
+ * so they must not depend on each other's results.
+ */
+public abstract class AsyncCommand extends Command
+{
+ /**
+  * Consumes the arguments of this command and returns the action
+  * that this command performs. Implementations should validate the
+  * arguments here, so that errors in them are reported before any
+  * later arguments are processed.
+  * @param args the iterator positioned at the first argument
+  * to this command, if any
+  * @return the action or <code>null</code> if there is nothing to do
+  * @throws RuntimeException if there is an error within the
+  * arguments supplied
+  * @throws ApplicationBeanException if there is a problem performing
+  * an immediate action requested by the command
+  * @see Command#process(ListIterator)
+  */
+ public abstract Callable<?> parse(ListIterator<String> args)
+ 	throws ApplicationBeanException;
+
+ /**
+  * Parses the arguments and performs the action right away. Launchers
+  * call {@link #parse(ListIterator)} instead, to perform the action in
+  * the background.
+  * @throws ApplicationBeanException if the action throws it
+  * @throws RuntimeException if the arguments are invalid, or the action
+  * throws a runtime exception
+  * @throws IllegalStateException if the action throws any other exception
+  */
+ @Override
+ public void process(ListIterator<String> args)
+ 	throws ApplicationBeanException
+ {
+  final Callable<?> action = parse(args);
+  if (null != action)
+   try
+   {
+    action.call();
+   }
+   catch (ApplicationBeanException e)
+   {
+    throw e;
+   }
+   catch (RuntimeException e)
+   {
+    throw e;
+   }
+   catch (Exception e)
+   {
+    throw new IllegalStateException(e.getMessage(), e);
+   }
+ }
+
+ /**
+  * Defines an asynchronous command.
+  * @param applicationBean the application class addressed by
+  * this command
+  */
+ public AsyncCommand(ApplicationBean applicationBean)
+ {
+  super(applicationBean);
+ }
+}
@@ -0,0 +1,446 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.ErrorManager;
+import java.util.logging.Filter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+/**
+ * JDK logging handler that passes records to another handler on a
+ * separate thread, so that threads which log do not wait for the
+ * records to be formatted and written, nor contend for the target
+ * handler's lock. Records are queued in a bounded lock-free ring
+ * buffer and written in their queue order by a single writer thread.
+ * When the buffer is full, the handler applies its
+ * {@link OverflowPolicy overflow policy}. Closing the handler, which
+ * the JDK does when the logging is reset or the JVM shuts down, writes
+ * all queued records before closing the target.
+ * To use this handler, list it among the <code>handlers</code> in the
+ * application's {@link Launcher#LOG_PROPERTIES_FILE logging properties}.
+ * The handler reads the following properties, prefixed with its class
+ * name and a dot, from the logging configuration:
+ * <ul>
+ * <li><code>target</code> - class name of the handler that writes
+ * the records, <code>java.util.logging.ConsoleHandler</code> by default;
+ * the target is configured by its own properties</li>
+ * <li><code>capacity</code> - the number of records the buffer
+ * holds, rounded up to a power of two, <code>1024</code> by default</li>
+ * <li><code>overflow</code> - name of the {@link OverflowPolicy},
+ * <code>block</code> by default</li>
+ * <li><code>sampleRate</code> - with the <code>sample</code> policy,
+ * one of this many records logged while the buffer is full is kept,
+ * <code>10</code> by default</li>
+ * <li><code>level</code> and <code>filter</code> - the level and
+ * filter of this handler, as with other handlers</li>
+ * </ul>
+ * When records are dropped, the handler reports their number with a
+ * warning once the buffer has room again.
+ */
+public class AsyncLogHandler extends Handler
+{
+ /**
+  * What threads do when they log records while the buffer is full.
+  */
+ public enum OverflowPolicy
+ {
+  /**
+   * Wait until there is room in the buffer. No records are lost.
+   */
+  BLOCK,
+  /**
+   * Discard the record.
+   */
+  DROP,
+  /**
+   * Wait for room in the buffer for one of every
+   * <code>sampleRate</code> records, discard the others.
+   */
+  SAMPLE
+ }
+
+ @Override
+ public void publish(LogRecord record)
+ {
+  if (closed || !isLoggable(record))
+   return;
+  if (Thread.currentThread() == writer)
+  {
+   // the target is logging, queueing its records may deadlock
+   publishToTarget(record);
+   return;
+  }
+  // the caller must be determined on the logging thread
+  record.getSourceClassName();
+  final long sequence = claim();
+  if (0 > sequence)
+   return;
+  buffer.set(index(sequence), record);
+  if (writerParked)
+   LockSupport.unpark(writer);
+ }
+
+ /**
+  * Waits until the records queued so far are written and flushes
+  * the target handler.
+  */
+ @Override
+ public void flush()
+ {
+  if (Thread.currentThread() != writer)
+   awaitWritten(tail.get());
+  target.flush();
+ }
+
+ /**
+  * Writes the queued records, stops the writer thread, and closes
+  * the target handler.
+  */
+ @Override
+ public void close() throws SecurityException
+ {
+  synchronized (this)
+  {
+   if (closed)
+    return;
+   closed = true;
+  }
+  LockSupport.unpark(writer);
+  if (Thread.currentThread() != writer)
+   try
+   {
+    writer.join();
+   }
+   catch (InterruptedException e)
+   {
+    Thread.currentThread().interrupt();
+   }
+  try
+  {
+   Runtime.getRuntime().removeShutdownHook(shutdownHook);
+  }
+  catch (IllegalStateException shuttingDown) {}
+  target.close();
+ }
+
+ /**
+  * Returns the handler that writes the records.
+  */
+ public Handler getTarget()
+ {
+  return target;
+ }
+
+ public OverflowPolicy getOverflowPolicy()
+ {
+  return overflowPolicy;
+ }
+
+ /**
+  * Returns the number of records dropped because the buffer was full.
+  */
+ public long getDroppedCount()
+ {
+  return dropped.get();
+ }
+
+ /**
+  * Creates a handler configured by the {@link LogManager} properties.
+  */
+ public AsyncLogHandler()
+ {
+  this(null, 0, null, 0);
+ }
+
+ /**
+  * Creates a handler with explicit settings. Settings that are not
+  * specified are read from the {@link LogManager} properties.
+  * @param target the handler that writes the records, or
+  * <code>null</code> to use the configured target
+  * @param capacity the number of records the buffer holds, or
+  * <code>0</code> to use the configured capacity
+  * @param overflowPolicy what to do when the buffer is full, or
+  * <code>null</code> to use the configured policy
+  * @param sampleRate the number of records per each record kept by the
+  * {@link OverflowPolicy#SAMPLE} policy, or <code>0</code> to use the
+  * configured rate
+  */
+ public AsyncLogHandler(Handler target, int capacity,
+   OverflowPolicy overflowPolicy, int sampleRate)
+ {
+  final String prefix = getClass().getName() + '.';
+  final LogManager manager = LogManager.getLogManager();
+  setLevel(parseLevel(manager.getProperty(prefix + "level")));
+  final String filter = manager.getProperty(prefix + "filter");
+  if (null != filter)
+   setFilter((Filter)newInstance(filter.trim()));
+  if (null == target)
+  {
+   final String targetClass = manager.getProperty(prefix + "target");
+   target = null == targetClass ? new ConsoleHandler()
+     : (Handler)newInstance(targetClass.trim());
+  }
+  this.target = target;
+  if (0 >= capacity)
+   capacity = parseInt(manager.getProperty(prefix + "capacity"), DEFAULT_CAPACITY);
+  int size = 1;
+  while (size < capacity && 0 < size << 1)
+   size <<= 1;
+  this.buffer = new AtomicReferenceArray<LogRecord>(size);
+  this.mask = size - 1;
+  if (null == overflowPolicy)
+  {
+   final String policy = manager.getProperty(prefix + "overflow");
+   try
+   {
+    overflowPolicy = null == policy ? OverflowPolicy.BLOCK
+      : OverflowPolicy.valueOf(policy.trim().toUpperCase());
+   }
+   catch (IllegalArgumentException invalid)
+   {
+    reportError("Unknown overflow policy: " + policy, invalid, ErrorManager.GENERIC_FAILURE);
+    overflowPolicy = OverflowPolicy.BLOCK;
+   }
+  }
+  this.overflowPolicy = overflowPolicy;
+  if (0 >= sampleRate)
+   sampleRate = parseInt(manager.getProperty(prefix + "sampleRate"), DEFAULT_SAMPLE_RATE);
+  this.sampleRate = sampleRate;
+  this.writer = new Thread(new Runnable() {
+   public void run()
+   {
+    write();
+   }
+  }, "springlet-log-writer");
+  this.writer.setDaemon(true);
+  this.shutdownHook = new Thread(new Runnable() {
+   public void run()
+   {
+    close();
+   }
+  }, "springlet-log-shutdown");
+  Runtime.getRuntime().addShutdownHook(shutdownHook);
+  this.writer.start();
+ }
+
+ /**
+  * Reserves a position in the buffer for a record, applying the
+  * overflow policy if the buffer is full.
+  * @return the sequence number of the reserved position, or a
+  * negative number if the record must be discarded
+  */
+ private long claim()
+ {
+  boolean mustWait = OverflowPolicy.BLOCK == overflowPolicy;
+  boolean overflown = false;
+  for (int spins = 0;; spins++)
+  {
+   final long sequence = tail.get();
+   if (sequence - head < buffer.length())
+   {
+    if (tail.compareAndSet(sequence, sequence + 1))
+     return sequence;
+   }
+   else
+   {
+    if (!overflown)
+    {
+     overflown = true;
+     if (OverflowPolicy.SAMPLE == overflowPolicy)
+      mustWait = 0 == overflowCount.getAndIncrement() % sampleRate;
+     if (!mustWait)
+     {
+      dropped.incrementAndGet();
+      return -1L;
+     }
+    }
+    if (closed)
+     return -1L;
+    if (writerParked)
+     LockSupport.unpark(writer);
+    if (SPIN_LIMIT > spins)
+     Thread.yield();
+    else
+     LockSupport.parkNanos(WAIT_NANOS);
+   }
+  }
+ }
+
+ /**
+  * The writer thread's loop.
+  */
+ private void write()
+ {
+  long reported = 0L;
+  boolean written = false;
+  for (;;)
+  {
+   long sequence = head;
+   final int index = index(sequence);
+   final LogRecord record = buffer.get(index);
+   if (null != record)
+   {
+    buffer.set(index, null);
+    head = sequence + 1;
+    publishToTarget(record);
+    written = true;
+    continue;
+   }
+   if (sequence < tail.get())
+   {
+    // a logging thread has reserved the slot, but not filled it yet
+    Thread.yield();
+    continue;
+   }
+   final long lost = dropped.get();
+   if (lost != reported)
+   {
+    final LogRecord warning = new LogRecord(Level.WARNING,
+      "Asynchronous logging dropped " + (lost - reported)
+      + " record(s) because its buffer was full");
+    warning.setLoggerName(getClass().getName());
+    warning.setSourceClassName(getClass().getName());
+    warning.setSourceMethodName("publish");
+    publishToTarget(warning);
+    reported = lost;
+    written = true;
+   }
+   if (written)
+    try
+    {
+     target.flush();
+     written = false;
+    }
+    catch (RuntimeException e)
+    {
+     reportError(null, e, ErrorManager.FLUSH_FAILURE);
+    }
+   if (closed && head == tail.get())
+    break;
+   writerParked = true;
+   if (head == tail.get() && !closed)
+    LockSupport.parkNanos(IDLE_NANOS);
+   writerParked = false;
+  }
+ }
+
+ private void publishToTarget(LogRecord record)
+ {
+  try
+  {
+   target.publish(record);
+  }
+  catch (RuntimeException e)
+  {
+   reportError(null, e, ErrorManager.WRITE_FAILURE);
+  }
+ }
+
+ private void awaitWritten(long sequence)
+ {
+  while (head < sequence && writer.isAlive())
+  {
+   LockSupport.unpark(writer);
+   LockSupport.parkNanos(WAIT_NANOS);
+  }
+ }
+
+ private int index(long sequence)
+ {
+  return (int)sequence & mask;
+ }
+
+ private Object newInstance(String className)
+ {
+  try
+  {
+   ClassLoader loader = Thread.currentThread().getContextClassLoader();
+   if (null == loader)
+    loader = AsyncLogHandler.class.getClassLoader();
+   return Class.forName(className, true, loader).newInstance();
+  }
+  catch (Exception e)
+  {
+   throw new IllegalArgumentException("Could not instantiate " + className
+     + " for " + getClass().getName(), e);
+  }
+ }
+
+ private static Level parseLevel(String value)
+ {
+  if (null == value)
+   return Level.ALL;
+  try
+  {
+   return Level.parse(value.trim());
+  }
+  catch (IllegalArgumentException invalid)
+  {
+   return Level.ALL;
+  }
+ }
+
+ private static int parseInt(String value, int defaultValue)
+ {
+  if (null == value)
+   return defaultValue;
+  try
+  {
+   final int result = Integer.parseInt(value.trim());
+   return 0 < result ? result : defaultValue;
+  }
+  catch (NumberFormatException invalid)
+  {
+   return defaultValue;
+  }
+ }
+
+ private static final int DEFAULT_CAPACITY = 1024;
+ private static final int DEFAULT_SAMPLE_RATE = 10;
+ private static final int SPIN_LIMIT = 64;
+ private static final long WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+ private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+ private final Handler target;
+ private final AtomicReferenceArray<LogRecord> buffer;
+ private final int mask;
+ private final OverflowPolicy overflowPolicy;
+ private final int sampleRate;
+ private final Thread writer;
+ private final Thread shutdownHook;
+ /**
+  * Sequence number of the next record to reserve a position for.
+  */
+ private final AtomicLong tail = new AtomicLong();
+ /**
+  * Sequence number of the next record to write, advanced by the
+  * writer thread only.
+  */
+ private volatile long head;
+ private volatile boolean writerParked;
+ private volatile boolean closed;
+ private final AtomicLong dropped = new AtomicLong();
+ private final AtomicLong overflowCount = new AtomicLong();
+}
@@ -0,0 +1,387 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an application once for each command line read from a file or
+ * the standard input, within the same JVM. Each line gets a
+ * {@link Launcher} with a fresh bean container, which is set up
+ * from bean definitions that are only read once. A batch is enabled
+ * by setting the {@link #BATCH_FILE_PROPERTY} system property, in which
+ * case the {@link run#main(String[]) main method} treats its own
+ * arguments as the leading arguments of every command line in the
+ * batch. Lines are split into arguments the way a POSIX shell would
+ * split them, except that no expansions are performed: words are
+ * separated by blanks, single quotes preserve enclosed characters
+ * literally, double quotes preserve enclosed characters except for
+ * <code>\</code> followed by <code>"</code>, <code>\</code>,
+ * <code>$</code> or <code>`</code>, and an unquoted <code>\</code>
+ * preserves the following character. An unquoted <code>#</code> at
+ * the beginning of a word starts a comment that extends to the end of
+ * line. Lines that contain no arguments are skipped.
+ * After each line is run, a tab-separated status record that contains
+ * the line number and the resulting status code is written to the
+ * file named by {@link #STATUS_FILE_PROPERTY}, or to the standard
+ * error stream if that property is not set, so that records are not
+ * mixed with the applications' output. When the batch is read from
+ * the standard input, command lines cannot
+ * {@link ArgumentIterator read arguments} from it. Lines may run
+ * {@link #PARALLELISM_PROPERTY concurrently}, in which case their
+ * records are written in the order lines complete.
+ */
+public class BatchLauncher extends Logging
+{
+ /**
+  * Name of the system property with the path to the file of
+  * command lines to run, or <code>-</code> to read them from the
+  * standard input.
+  */
+ public static final String BATCH_FILE_PROPERTY = "springlet.batch";
+
+ /**
+  * Name of the system property with the path to the file to write
+  * status records to. Defaults to the standard error stream.
+  */
+ public static final String STATUS_FILE_PROPERTY = "springlet.batch.status";
+
+ /**
+  * Name of the system property with the maximum number of lines
+  * to run at the same time. Defaults to <code>1</code>.
+  * Applications that keep state in static fields or change the
+  * logging configuration may not run correctly in parallel.
+  */
+ public static final String PARALLELISM_PROPERTY = "springlet.batch.parallelism";
+
+ /**
+  * The {@link #BATCH_FILE_PROPERTY property value} that reads
+  * command lines from the standard input.
+  */
+ public static final String STANDARD_INPUT = "-";
+
+ /**
+  * Returns a batch launcher configured by the
+  * {@link #BATCH_FILE_PROPERTY system properties}.
+  * @return the batch launcher or <code>null</code> if the
+  * batch mode has not been requested
+  */
+ public static BatchLauncher forSystemProperties()
+ {
+  final String batch = System.getProperty(BATCH_FILE_PROPERTY);
+  if (null == batch || 0 == batch.length())
+   return null;
+  final BatchLauncher launcher = new BatchLauncher(batch);
+  launcher.setStatusFile(System.getProperty(STATUS_FILE_PROPERTY));
+  launcher.setParallelism(Integer.getInteger(PARALLELISM_PROPERTY, 1));
+  return launcher;
+ }
+
+ /**
+  * Splits a line into arguments as explained
+  * {@link BatchLauncher above}.
+  * @param line the line to split
+  * @return the list of arguments, empty if the line is empty
+  * or a comment
+  * @throws IllegalArgumentException if the line contains an
+  * unterminated quote or ends with an unquoted backslash
+  */
+ public static List<String> tokenize(String line)
+ {
+  final List<String> args = new ArrayList<String>();
+  final StringBuilder word = new StringBuilder();
+  boolean inWord = false;
+  for (int i = 0, length = line.length(); length > i; i++)
+  {
+   char c = line.charAt(i);
+   if (' ' == c || '\t' == c)
+   {
+    if (inWord)
+    {
+     args.add(word.toString());
+     word.setLength(0);
+     inWord = false;
+    }
+    continue;
+   }
+   if ('#' == c && !inWord)
+    break;
+   inWord = true;
+   if ('\\' == c)
+   {
+    if (length == ++i)
+     throw new IllegalArgumentException("Unescaped backslash at the end of line");
+    word.append(line.charAt(i));
+   }
+   else if ('\'' == c)
+   {
+    final int end = line.indexOf('\'', i + 1);
+    if (0 > end)
+     throw new IllegalArgumentException("Unterminated single quote at position " + i);
+    word.append(line, i + 1, end);
+    i = end;
+   }
+   else if ('"' == c)
+   {
+    final int start = i;
+    for (;;)
+    {
+     if (length == ++i)
+      throw new IllegalArgumentException("Unterminated double quote at position " + start);
+     c = line.charAt(i);
+     if ('"' == c)
+      break;
+     if ('\\' == c && length > i + 1 && 0 <= "\"\\$`".indexOf(line.charAt(i + 1)))
+      c = line.charAt(++i);
+     word.append(c);
+    }
+   }
+   else
+    word.append(c);
+  }
+  if (inWord)
+   args.add(word.toString());
+  return args;
+ }
+
+ /**
+  * Runs the application for each line of the batch.
+  * @param commonArgs arguments to prepend to each line's arguments
+  * @return zero if all lines ran successfully, otherwise the status
+  * code of the first line, in the batch order, that failed
+  * @throws IOException if there is an error reading the batch or
+  * writing status records
+  */
+ public int launch(String[] commonArgs) throws IOException
+ {
+  final BeanDefinitionTemplate template = BeanDefinitionTemplate.load();
+  new Launcher(template).configureDefaultLogging();
+  final BufferedReader in = new BufferedReader(openBatch());
+  final PrintWriter statusOut = openStatusFile();
+  final Results results = new Results(statusOut);
+  final ExecutorService pool = 1 < parallelism
+    ? Executors.newFixedThreadPool(parallelism) : null;
+  final Semaphore slots = new Semaphore(parallelism);
+  try
+  {
+   int lineNumber = 0;
+   for (String line; null != (line = in.readLine());)
+   {
+    lineNumber++;
+    final List<String> args;
+    try
+    {
+     args = tokenize(line);
+    }
+    catch (IllegalArgumentException invalid)
+    {
+     log().error("Line " + lineNumber + " of batch " + batch + ": " + invalid.getMessage());
+     results.record(lineNumber, Launcher.STATUS_COMMAND_PARSING_FAILURE);
+     continue;
+    }
+    if (args.isEmpty())
+     continue;
+    final String[] argv = new String[commonArgs.length + args.size()];
+    System.arraycopy(commonArgs, 0, argv, 0, commonArgs.length);
+    for (int i = 0; args.size() > i; i++)
+     argv[commonArgs.length + i] = args.get(i);
+    final Task task = new Task(lineNumber, argv, template, results, slots);
+    slots.acquireUninterruptibly();
+    if (null == pool)
+     task.run();
+    else
+     pool.execute(task);
+   }
+  }
+  finally
+  {
+   if (null != pool)
+   {
+    pool.shutdown();
+    try
+    {
+     while (!pool.awaitTermination(1, TimeUnit.MINUTES))
+      log().info("Waiting for the batch " + batch + " to complete ...");
+    }
+    catch (InterruptedException interrupt)
+    {
+     log().warn("Interrupted while waiting for the batch " + batch + " to complete");
+     pool.shutdownNow();
+     Thread.currentThread().interrupt();
+    }
+   }
+   if (!STANDARD_INPUT.equals(batch))
+    in.close();
+   statusOut.flush();
+   if (null != statusFile)
+    statusOut.close();
+  }
+  return results.getStatus();
+ }
+
+ public String getBatch()
+ {
+  return batch;
+ }
+
+ public int getParallelism()
+ {
+  return parallelism;
+ }
+
+ /**
+  * @param parallelism maximum number of lines to run at the same time
+  */
+ public void setParallelism(int parallelism)
+ {
+  if (0 >= parallelism)
+   throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism);
+  this.parallelism = parallelism;
+ }
+
+ public String getStatusFile()
+ {
+  return statusFile;
+ }
+
+ /**
+  * @param statusFile the path to the file to write status records to,
+  * or <code>null</code> to write them to the standard error stream
+  */
+ public void setStatusFile(String statusFile)
+ {
+  this.statusFile = statusFile;
+ }
+
+ /**
+  * @param batch the path to the file with command lines to run or
+  * {@link #STANDARD_INPUT} to read them from the standard input
+  */
+ public BatchLauncher(String batch)
+ {
+  this.batch = batch;
+ }
+
+ private Reader openBatch() throws IOException
+ {
+  return new InputStreamReader(STANDARD_INPUT.equals(batch)
+    ? System.in : new FileInputStream(batch));
+ }
+
+ private PrintWriter openStatusFile() throws IOException
+ {
+  return new PrintWriter(null == statusFile
+    ? new OutputStreamWriter(System.err) : new OutputStreamWriter(new FileOutputStream(statusFile)));
+ }
+
+ /**
+  * Runs the application for a line of the batch.
+  */
+ private class Task implements Runnable
+ {
+  public void run()
+  {
+   int status;
+   try
+   {
+    final Launcher launcher = new Launcher(template);
+    final ArgumentIterator iargs = new ArgumentIterator(Arrays.asList(args).iterator());
+    iargs.setArgumentFiles(launcher.isArgumentFilesEnabled());
+    // the standard input is being read for the batch itself
+    iargs.setStandardInputAvailable(!STANDARD_INPUT.equals(batch));
+    status = launcher.launch(iargs);
+   }
+   catch (RuntimeException error)
+   {
+    log().error("Line " + lineNumber + " of batch " + batch + " failed", error);
+    status = Launcher.STATUS_INTERNAL_ERROR;
+   }
+   finally
+   {
+    slots.release();
+   }
+   results.record(lineNumber, status);
+  }
+
+  Task(int lineNumber, String[] args, BeanDefinitionTemplate template,
+    Results results, Semaphore slots)
+  {
+   this.lineNumber = lineNumber;
+   this.args = args;
+   this.template = template;
+   this.results = results;
+   this.slots = slots;
+  }
+
+  private final int lineNumber;
+  private final String[] args;
+  private final BeanDefinitionTemplate template;
+  private final Results results;
+  private final Semaphore slots;
+ }
+
+ /**
+  * Writes status records and keeps track of the first failure.
+  */
+ private static class Results
+ {
+  synchronized void record(int lineNumber, int status)
+  {
+   out.print(lineNumber);
+   out.print('\t');
+   out.println(status);
+   out.flush();
+   if (0 != status && (0 == failedLine || lineNumber < failedLine))
+   {
+    failedLine = lineNumber;
+    this.status = status;
+   }
+  }
+
+  synchronized int getStatus()
+  {
+   return status;
+  }
+
+  Results(PrintWriter out)
+  {
+   this.out = out;
+  }
+
+  private final PrintWriter out;
+  private int failedLine;
+  private int status;
+ }
+
+ private final String batch;
+ private String statusFile;
+ private int parallelism = 1;
+}
@@ -0,0 +1,712 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.parsing.EmptyReaderEventListener;
+import org.springframework.beans.factory.parsing.ImportDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.ManagedArray;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedProperties;
+import org.springframework.beans.factory.support.ManagedSet;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+
+/**
+ * Stores bean definitions parsed from the framework's
+ * {@link Launcher#MAIN_BEAN_CONFIG_FILE configuration file(s)}
+ * in a compact binary file, so that later launches can rebuild
+ * the bean registry without parsing XML. The cache is disabled
+ * unless the {@link #CACHE_FILE_PROPERTY} system property names
+ * the file to use. A cache file is only used when the classpath
+ * and the contents of every configuration resource, including
+ * imported ones, match those recorded when the file was written.
+ * Otherwise, the configuration is parsed again and the cache file
+ * is replaced. Configurations that use features this class cannot
+ * encode, such as qualifiers, method overrides, bean metadata
+ * attributes, or custom namespace values, are never cached.
+ */
+public class BeanDefinitionCache extends Logging
+{
+ /**
+  * Name of the system property that enables the cache and
+  * points to its file.
+  */
+ public static final String CACHE_FILE_PROPERTY = "springlet.definitions.cache";
+
+ /**
+  * Returns a cache object configured by the
+  * {@link #CACHE_FILE_PROPERTY system property}.
+  * @return the cache object or <code>null</code> if the
+  * cache is disabled
+  */
+ public static BeanDefinitionCache forSystemProperties()
+ {
+  final String path = System.getProperty(CACHE_FILE_PROPERTY);
+  return null == path || 0 == path.length() ? null : new BeanDefinitionCache(new File(path));
+ }
+
+ /**
+  * Populates a registry with bean definitions stored in the cache
+  * file, provided that the file exists and is up to date.
+  * The registry is left intact if the cache cannot be used.
+  * @param registry the registry to receive cached definitions
+  * @return whether or not the registry has been populated
+  */
+ public boolean load(BeanDefinitionRegistry registry)
+ {
+  final Log log = log();
+  if (!file.isFile())
+  {
+   debug("Bean definition cache {} does not exist", file);
+   return false;
+  }
+  final List<BeanDefinitionHolder> beans;
+  try
+  {
+   final DataInputStream in = new DataInputStream(
+     new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+   try
+   {
+    if (MAGIC != in.readInt() || FORMAT_VERSION != in.readShort())
+    {
+     log.info("Bean definition cache " + file
+       + " has unknown format and will be replaced");
+     return false;
+    }
+    if (!System.getProperty("java.class.path", "").equals(readString(in)))
+    {
+     log.debug("Classpath changed, bean definition cache is stale");
+     return false;
+    }
+    for (int count = in.readInt(); 0 < count; count--)
+    {
+     final String url = readString(in);
+     final long length = in.readLong();
+     final long checksum = in.readLong();
+     if (!matches(new UrlResource(url), length, checksum))
+     {
+      debug("Configuration resource {} changed, bean definition cache is stale", url);
+      return false;
+     }
+    }
+    final int count = in.readInt();
+    beans = new ArrayList<BeanDefinitionHolder>(count);
+    for (int i = 0; count > i; i++)
+     beans.add(readHolder(in));
+   }
+   finally
+   {
+    try { in.close(); }
+    catch (IOException ignored) {}
+   }
+  }
+  catch (Exception failure)
+  {
+   log.warn("Could not read bean definition cache " + file, failure);
+   return false;
+  }
+  for (BeanDefinitionHolder holder : beans)
+  {
+   final String name = holder.getBeanName();
+   registry.registerBeanDefinition(name, holder.getBeanDefinition());
+   for (String alias : holder.getAliases())
+    registry.registerAlias(name, alias);
+  }
+  debug("Loaded {} bean definition(s) from cache {}", beans.size(), file);
+  return true;
+ }
+
+ /**
+  * Loads bean definitions from an XML configuration using a reader
+  * and stores them in the cache file along with checksums of the
+  * resources read. Failure to write the cache is logged, but does
+  * not affect the registry.
+  * @param reader the reader configured to populate a registry
+  * that should not contain any definitions beforehand
+  * @param location location of the top-level configuration
+  * resource
+  * @see XmlBeanDefinitionReader#loadBeanDefinitions(String)
+  */
+ public void loadAndStore(XmlBeanDefinitionReader reader, String location)
+ {
+  final Set<Resource> resources = new LinkedHashSet<Resource>();
+  resources.add(reader.getResourceLoader().getResource(location));
+  reader.setEventListener(new EmptyReaderEventListener()
+  {
+   @Override
+   public void importProcessed(ImportDefinition importDefinition)
+   {
+    final Resource[] actual = importDefinition.getActualResources();
+    if (null != actual)
+     for (Resource resource : actual)
+      resources.add(resource);
+   }
+  });
+  reader.loadBeanDefinitions(location);
+  store(reader.getRegistry(), resources);
+ }
+
+ /**
+  * Writes all definitions from a registry to the cache file.
+  * The cache is written to a unique temporary file that then
+  * atomically replaces the cache file, so that concurrent launches
+  * read either the former or the new cache. If the file cannot be
+  * replaced, the cache is not updated.
+  * @param registry the registry to save
+  * @param resources the configuration resources that
+  * the registry has been populated from
+  */
+ public void store(BeanDefinitionRegistry registry, Collection<Resource> resources)
+ {
+  final Log log = log();
+  File temp = null;
+  try
+  {
+   temp = File.createTempFile(file.getName() + '.', ".tmp",
+     file.getAbsoluteFile().getParentFile());
+   final DataOutputStream out = new DataOutputStream(
+     new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE));
+   try
+   {
+    out.writeInt(MAGIC);
+    out.writeShort(FORMAT_VERSION);
+    writeString(out, System.getProperty("java.class.path", ""));
+    out.writeInt(resources.size());
+    for (Resource resource : resources)
+    {
+     final URL url = resource.getURL();
+     final long[] sums = checksum(resource);
+     writeString(out, url.toExternalForm());
+     out.writeLong(sums[0]);
+     out.writeLong(sums[1]);
+    }
+    final String[] names = registry.getBeanDefinitionNames();
+    out.writeInt(names.length);
+    for (String name : names)
+     writeHolder(out, new BeanDefinitionHolder(
+       registry.getBeanDefinition(name), name, registry.getAliases(name)));
+   }
+   finally
+   {
+    out.close();
+   }
+   Files.move(temp.toPath(), file.toPath(),
+     StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+   debug("Saved bean definition cache {}", file);
+  }
+  catch (UnsupportedDefinitionException unsupported)
+  {
+   log.info("Bean definitions cannot be cached: " + unsupported.getMessage());
+   if (null != temp)
+    temp.delete();
+  }
+  catch (IOException failure)
+  {
+   log.warn("Could not write bean definition cache " + file, failure);
+   if (null != temp)
+    temp.delete();
+  }
+ }
+
+ public File getFile()
+ {
+  return file;
+ }
+
+ /**
+  * @param file the file that contains or will contain the cache
+  */
+ public BeanDefinitionCache(File file)
+ {
+  this.file = file;
+ }
+
+ private static boolean matches(Resource resource, long length, long checksum)
+ {
+  try
+  {
+   final long[] sums = checksum(resource);
+   return length == sums[0] && checksum == sums[1];
+  }
+  catch (IOException notReadable)
+  {
+   return false;
+  }
+ }
+
+ private static long[] checksum(Resource resource) throws IOException
+ {
+  final CRC32 crc = new CRC32();
+  final byte[] buffer = new byte[BUFFER_SIZE];
+  long length = 0L;
+  final InputStream in = resource.getInputStream();
+  try
+  {
+   for (int read; 0 <= (read = in.read(buffer));)
+   {
+    crc.update(buffer, 0, read);
+    length += read;
+   }
+  }
+  finally
+  {
+   in.close();
+  }
+  return new long[] { length, crc.getValue() };
+ }
+
+ private void writeHolder(DataOutputStream out, BeanDefinitionHolder holder)
+ 	throws IOException, UnsupportedDefinitionException
+ {
+  final String name = holder.getBeanName();
+  writeString(out, name);
+  final String[] aliases = holder.getAliases();
+  if (null == aliases)
+   out.writeInt(0);
+  else
+  {
+   out.writeInt(aliases.length);
+   for (String alias : aliases)
+    writeString(out, alias);
+  }
+  writeDefinition(out, name, holder.getBeanDefinition());
+ }
+
+ private BeanDefinitionHolder readHolder(DataInputStream in)
+ 	throws IOException
+ {
+  final String name = readString(in);
+  final String[] aliases = new String[in.readInt()];
+  for (int i = 0; aliases.length > i; i++)
+   aliases[i] = readString(in);
+  return new BeanDefinitionHolder(readDefinition(in), name, aliases);
+ }
+
+ private void writeDefinition(DataOutputStream out, String name, BeanDefinition definition)
+ 	throws IOException, UnsupportedDefinitionException
+ {
+  if (GenericBeanDefinition.class != definition.getClass())
+   throw new UnsupportedDefinitionException(name, definition.getClass().getName());
+  final GenericBeanDefinition bean = (GenericBeanDefinition)definition;
+  if (!bean.getQualifiers().isEmpty())
+   throw new UnsupportedDefinitionException(name, "qualifiers");
+  if (!bean.getMethodOverrides().isEmpty())
+   throw new UnsupportedDefinitionException(name, "method overrides");
+  if (0 < bean.attributeNames().length)
+   throw new UnsupportedDefinitionException(name, "metadata attributes");
+  writeString(out, bean.getParentName());
+  writeString(out, bean.getBeanClassName());
+  writeString(out, bean.getScope());
+  out.writeBoolean(bean.isAbstract());
+  out.writeBoolean(bean.isLazyInit());
+  out.writeInt(bean.getAutowireMode());
+  out.writeInt(bean.getDependencyCheck());
+  writeStrings(out, bean.getDependsOn());
+  out.writeBoolean(bean.isAutowireCandidate());
+  out.writeBoolean(bean.isPrimary());
+  out.writeBoolean(bean.isNonPublicAccessAllowed());
+  out.writeBoolean(bean.isLenientConstructorResolution());
+  writeString(out, bean.getFactoryBeanName());
+  writeString(out, bean.getFactoryMethodName());
+  final ConstructorArgumentValues args = bean.getConstructorArgumentValues();
+  final Map<Integer, ConstructorArgumentValues.ValueHolder> indexed =
+    args.getIndexedArgumentValues();
+  out.writeInt(indexed.size());
+  for (Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry : indexed.entrySet())
+  {
+   out.writeInt(entry.getKey());
+   writeArgument(out, name, entry.getValue());
+  }
+  final List<ConstructorArgumentValues.ValueHolder> generic =
+    args.getGenericArgumentValues();
+  out.writeInt(generic.size());
+  for (ConstructorArgumentValues.ValueHolder holder : generic)
+   writeArgument(out, name, holder);
+  final List<PropertyValue> properties = bean.getPropertyValues().getPropertyValueList();
+  out.writeInt(properties.size());
+  for (PropertyValue property : properties)
+  {
+   writeString(out, property.getName());
+   writeValue(out, name, property.getValue());
+  }
+  writeString(out, bean.getInitMethodName());
+  out.writeBoolean(bean.isEnforceInitMethod());
+  writeString(out, bean.getDestroyMethodName());
+  out.writeBoolean(bean.isEnforceDestroyMethod());
+  out.writeBoolean(bean.isSynthetic());
+  out.writeInt(bean.getRole());
+  writeString(out, bean.getDescription());
+  writeString(out, bean.getResourceDescription());
+ }
+
+ private GenericBeanDefinition readDefinition(DataInputStream in)
+ 	throws IOException
+ {
+  final GenericBeanDefinition bean = new GenericBeanDefinition();
+  bean.setParentName(readString(in));
+  bean.setBeanClassName(readString(in));
+  bean.setScope(readString(in));
+  bean.setAbstract(in.readBoolean());
+  bean.setLazyInit(in.readBoolean());
+  bean.setAutowireMode(in.readInt());
+  bean.setDependencyCheck(in.readInt());
+  bean.setDependsOn(readStrings(in));
+  bean.setAutowireCandidate(in.readBoolean());
+  bean.setPrimary(in.readBoolean());
+  bean.setNonPublicAccessAllowed(in.readBoolean());
+  bean.setLenientConstructorResolution(in.readBoolean());
+  bean.setFactoryBeanName(readString(in));
+  bean.setFactoryMethodName(readString(in));
+  final ConstructorArgumentValues args = new ConstructorArgumentValues();
+  for (int count = in.readInt(); 0 < count; count--)
+  {
+   final int index = in.readInt();
+   args.addIndexedArgumentValue(index, readArgument(in));
+  }
+  for (int count = in.readInt(); 0 < count; count--)
+   args.addGenericArgumentValue(readArgument(in));
+  bean.setConstructorArgumentValues(args);
+  final MutablePropertyValues properties = new MutablePropertyValues();
+  for (int count = in.readInt(); 0 < count; count--)
+  {
+   final String name = readString(in);
+   properties.addPropertyValue(new PropertyValue(name, readValue(in)));
+  }
+  bean.setPropertyValues(properties);
+  bean.setInitMethodName(readString(in));
+  bean.setEnforceInitMethod(in.readBoolean());
+  bean.setDestroyMethodName(readString(in));
+  bean.setEnforceDestroyMethod(in.readBoolean());
+  bean.setSynthetic(in.readBoolean());
+  bean.setRole(in.readInt());
+  bean.setDescription(readString(in));
+  bean.setResourceDescription(readString(in));
+  return bean;
+ }
+
+ private void writeArgument(DataOutputStream out, String bean,
+   ConstructorArgumentValues.ValueHolder holder)
+ 	throws IOException, UnsupportedDefinitionException
+ {
+  writeString(out, holder.getType());
+  writeString(out, holder.getName());
+  writeValue(out, bean, holder.getValue());
+ }
+
+ private ConstructorArgumentValues.ValueHolder readArgument(DataInputStream in)
+ 	throws IOException
+ {
+  final String type = readString(in);
+  final String name = readString(in);
+  return new ConstructorArgumentValues.ValueHolder(readValue(in), type, name);
+ }
+
+ @SuppressWarnings("unchecked")
+ private void writeValue(DataOutputStream out, String bean, Object value)
+ 	throws IOException, UnsupportedDefinitionException
+ {
+  if (null == value)
+   out.writeByte(TAG_NULL);
+  else if (value instanceof String)
+  {
+   out.writeByte(TAG_STRING);
+   writeString(out, (String)value);
+  }
+  else if (value instanceof TypedStringValue)
+  {
+   final TypedStringValue typed = (TypedStringValue)value;
+   out.writeByte(TAG_TYPED_STRING);
+   writeString(out, typed.getValue());
+   writeString(out, typed.hasTargetType()
+     ? typed.getTargetType().getName() : typed.getTargetTypeName());
+   writeString(out, typed.getSpecifiedTypeName());
+   out.writeBoolean(typed.isDynamic());
+  }
+  else if (value instanceof RuntimeBeanReference)
+  {
+   final RuntimeBeanReference ref = (RuntimeBeanReference)value;
+   out.writeByte(TAG_REFERENCE);
+   writeString(out, ref.getBeanName());
+   out.writeBoolean(ref.isToParent());
+  }
+  else if (value instanceof RuntimeBeanNameReference)
+  {
+   out.writeByte(TAG_NAME_REFERENCE);
+   writeString(out, ((RuntimeBeanNameReference)value).getBeanName());
+  }
+  else if (value instanceof BeanDefinitionHolder)
+  {
+   out.writeByte(TAG_INNER_BEAN);
+   writeHolder(out, (BeanDefinitionHolder)value);
+  }
+  else if (value instanceof ManagedArray)
+  {
+   final ManagedArray array = (ManagedArray)value;
+   out.writeByte(TAG_ARRAY);
+   writeString(out, array.getElementTypeName());
+   out.writeBoolean(array.isMergeEnabled());
+   writeValues(out, bean, array);
+  }
+  else if (value instanceof ManagedList)
+  {
+   final ManagedList<Object> list = (ManagedList<Object>)value;
+   out.writeByte(TAG_LIST);
+   writeString(out, list.getElementTypeName());
+   out.writeBoolean(list.isMergeEnabled());
+   writeValues(out, bean, list);
+  }
+  else if (value instanceof ManagedSet)
+  {
+   final ManagedSet<Object> set = (ManagedSet<Object>)value;
+   out.writeByte(TAG_SET);
+   writeString(out, set.getElementTypeName());
+   out.writeBoolean(set.isMergeEnabled());
+   writeValues(out, bean, set);
+  }
+  else if (value instanceof ManagedMap)
+  {
+   final ManagedMap<Object, Object> map = (ManagedMap<Object, Object>)value;
+   out.writeByte(TAG_MAP);
+   writeString(out, map.getKeyTypeName());
+   writeString(out, map.getValueTypeName());
+   out.writeBoolean(map.isMergeEnabled());
+   writeEntries(out, bean, map);
+  }
+  else if (value instanceof ManagedProperties)
+  {
+   final ManagedProperties props = (ManagedProperties)value;
+   out.writeByte(TAG_PROPERTIES);
+   out.writeBoolean(props.isMergeEnabled());
+   writeEntries(out, bean, props);
+  }
+  else
+   throw new UnsupportedDefinitionException(bean, value.getClass().getName());
+ }
+
+ private Object readValue(DataInputStream in)
+ 	throws IOException
+ {
+  final byte tag = in.readByte();
+  switch (tag)
+  {
+  case TAG_NULL:
+   return null;
+  case TAG_STRING:
+   return readString(in);
+  case TAG_TYPED_STRING:
+   final TypedStringValue typed = new TypedStringValue(readString(in));
+   final String targetType = readString(in);
+   if (null != targetType)
+    typed.setTargetTypeName(targetType);
+   typed.setSpecifiedTypeName(readString(in));
+   if (in.readBoolean())
+    typed.setDynamic();
+   return typed;
+  case TAG_REFERENCE:
+   final String target = readString(in);
+   return new RuntimeBeanReference(target, in.readBoolean());
+  case TAG_NAME_REFERENCE:
+   return new RuntimeBeanNameReference(readString(in));
+  case TAG_INNER_BEAN:
+   return readHolder(in);
+  case TAG_ARRAY:
+   final String elementType = readString(in);
+   final boolean mergeArray = in.readBoolean();
+   final int size = in.readInt();
+   final ManagedArray array = new ManagedArray(elementType, size);
+   array.setMergeEnabled(mergeArray);
+   readValues(in, array, size);
+   return array;
+  case TAG_LIST:
+   final ManagedList<Object> list = new ManagedList<Object>();
+   list.setElementTypeName(readString(in));
+   list.setMergeEnabled(in.readBoolean());
+   readValues(in, list, in.readInt());
+   return list;
+  case TAG_SET:
+   final ManagedSet<Object> set = new ManagedSet<Object>();
+   set.setElementTypeName(readString(in));
+   set.setMergeEnabled(in.readBoolean());
+   readValues(in, set, in.readInt());
+   return set;
+  case TAG_MAP:
+   final ManagedMap<Object, Object> map = new ManagedMap<Object, Object>();
+   map.setKeyTypeName(readString(in));
+   map.setValueTypeName(readString(in));
+   map.setMergeEnabled(in.readBoolean());
+   readEntries(in, map);
+   return map;
+  case TAG_PROPERTIES:
+   final ManagedProperties props = new ManagedProperties();
+   props.setMergeEnabled(in.readBoolean());
+   readEntries(in, props);
+   return props;
+  default:
+   throw new IOException("Unknown value tag " + tag + " in bean definition cache " + file);
+  }
+ }
+
+ private void writeValues(DataOutputStream out, String bean, Collection<Object> values)
+ 	throws IOException, UnsupportedDefinitionException
+ {
+  out.writeInt(values.size());
+  for (Object element : values)
+   writeValue(out, bean, element);
+ }
+
+ private void readValues(DataInputStream in, Collection<Object> values, int count)
+ 	throws IOException
+ {
+  for (; 0 < count; count--)
+   values.add(readValue(in));
+ }
+
+ private void writeEntries(DataOutputStream out, String bean, Map<Object, Object> entries)
+ 	throws IOException, UnsupportedDefinitionException
+ {
+  out.writeInt(entries.size());
+  for (Map.Entry<Object, Object> entry : entries.entrySet())
+  {
+   writeValue(out, bean, entry.getKey());
+   writeValue(out, bean, entry.getValue());
+  }
+ }
+
+ private void readEntries(DataInputStream in, Map<Object, Object> entries)
+ 	throws IOException
+ {
+  for (int count = in.readInt(); 0 < count; count--)
+  {
+   final Object key = readValue(in);
+   entries.put(key, readValue(in));
+  }
+ }
+
+ private static void writeStrings(DataOutputStream out, String[] values)
+ 	throws IOException
+ {
+  if (null == values)
+   out.writeInt(-1);
+  else
+  {
+   out.writeInt(values.length);
+   for (String value : values)
+    writeString(out, value);
+  }
+ }
+
+ private static String[] readStrings(DataInputStream in)
+ 	throws IOException
+ {
+  final int count = in.readInt();
+  if (0 > count)
+   return null;
+  final String[] values = new String[count];
+  for (int i = 0; count > i; i++)
+   values[i] = readString(in);
+  return values;
+ }
+
+ /**
+  * Writes a nullable string of arbitrary length, unlike
+  * {@link DataOutputStream#writeUTF(String)}.
+  */
+ private static void writeString(DataOutputStream out, String value)
+ 	throws IOException
+ {
+  if (null == value)
+   out.writeInt(-1);
+  else
+  {
+   final byte[] bytes = value.getBytes(CHARSET);
+   out.writeInt(bytes.length);
+   out.write(bytes);
+  }
+ }
+
+ private static String readString(DataInputStream in)
+ 	throws IOException
+ {
+  final int length = in.readInt();
+  if (0 > length)
+   return null;
+  final byte[] bytes = new byte[length];
+  in.readFully(bytes);
+  return new String(bytes, CHARSET);
+ }
+
+ @SuppressWarnings("serial")
+ private static class UnsupportedDefinitionException extends Exception
+ {
+  public UnsupportedDefinitionException(String bean, String feature)
+  {
+   super("bean '" + bean + "' uses " + feature);
+  }
+ }
+
+ private static final int MAGIC = 0x53504C44;
+ private static final short FORMAT_VERSION = 1;
+ private static final int BUFFER_SIZE = 8192;
+ private static final String CHARSET = "UTF-8";
+
+ private static final byte TAG_NULL = 0;
+ private static final byte TAG_STRING = 1;
+ private static final byte TAG_TYPED_STRING = 2;
+ private static final byte TAG_REFERENCE = 3;
+ private static final byte TAG_NAME_REFERENCE = 4;
+ private static final byte TAG_INNER_BEAN = 5;
+ private static final byte TAG_ARRAY = 6;
+ private static final byte TAG_LIST = 7;
+ private static final byte TAG_SET = 8;
+ private static final byte TAG_MAP = 9;
+ private static final byte TAG_PROPERTIES = 10;
+
+ private final File file;
+}
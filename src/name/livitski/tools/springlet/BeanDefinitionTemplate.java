@@ -0,0 +1,149 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Parsed bean definitions of an application that can be used to
+ * configure any number of {@link Launcher launchers}. Each launcher
+ * created with a template gets a {@link #newBeanFactory() fresh container}
+ * with its own singleton beans, but the application's configuration
+ * is only read once, when the template is {@link #load() loaded}.
+ * Use templates when launching the same application repeatedly
+ * within a JVM.
+ * <p>A template is immutable once created. It merges each definition
+ * with its parents and resolves its bean class up front, and all
+ * containers created from the template share these definitions rather
+ * than copying them. A container only makes its own copy of a definition
+ * when it creates the bean, so launchers that use a few of the
+ * application's beans, such as the main bean and the commands on their
+ * command line, do not pay for the rest of the configuration. Templates
+ * may be used by multiple threads concurrently.</p>
+ */
+public class BeanDefinitionTemplate
+{
+ /**
+  * Reads the application's configuration the same way a
+  * {@link Launcher} would.
+  * @return the template with application's bean definitions
+  */
+ public static BeanDefinitionTemplate load()
+ {
+  final DefaultListableBeanFactory definitions = new DefaultListableBeanFactory();
+  Launcher.loadBeanDefinitions(definitions, null);
+  return new BeanDefinitionTemplate(definitions);
+ }
+
+ /**
+  * Creates a container with this template's bean definitions
+  * and aliases. The container has no instantiated beans.
+  * The definitions are shared with other containers created from
+  * this template and must not be modified.
+  */
+ public DefaultListableBeanFactory newBeanFactory()
+ {
+  final NewBeanFactory factory = new NewBeanFactory();
+  for (int i = 0; i < names.length; i++)
+  {
+   factory.registerBeanDefinition(names[i], shared[i]);
+   for (String alias : aliases[i])
+    factory.registerAlias(names[i], alias);
+  }
+  factory.populated = true;
+  return factory;
+ }
+
+ /**
+  * Returns the index of commands defined by this template, reading
+  * a {@link CommandIndex#load() pre-built index} if available.
+  * The index is shared by all launchers that use this template.
+  * @throws IOException if there is an error reading the index
+  */
+ public synchronized CommandIndex getCommandIndex() throws IOException
+ {
+  if (null == commandIndex)
+  {
+   commandIndex = CommandIndex.load();
+   if (null == commandIndex)
+    commandIndex = CommandIndex.scan(definitions);
+  }
+  return commandIndex;
+ }
+
+ /**
+  * @param definitions the container with bean definitions to share.
+  * Beans in that container must not be instantiated, and its
+  * definitions must not be changed after this call.
+  * @throws org.springframework.beans.factory.BeanDefinitionStoreException
+  * if a definition cannot be merged with its parents
+  */
+ public BeanDefinitionTemplate(DefaultListableBeanFactory definitions)
+ {
+  definitions.freezeConfiguration();
+  this.definitions = definitions;
+  this.names = definitions.getBeanDefinitionNames();
+  this.shared = new RootBeanDefinition[names.length];
+  this.aliases = new String[names.length][];
+  final ClassLoader classLoader = definitions.getBeanClassLoader();
+  for (int i = 0; i < names.length; i++)
+  {
+   final RootBeanDefinition definition = ((RootBeanDefinition)
+     definitions.getMergedBeanDefinition(names[i])).cloneBeanDefinition();
+   if (!definition.isAbstract() && !definition.hasBeanClass()
+     && null != definition.getBeanClassName())
+    try
+    {
+     definition.resolveBeanClass(classLoader);
+    }
+    catch (ClassNotFoundException missing)
+    {
+     // reported by the container that needs the bean
+    }
+   shared[i] = definition;
+   aliases[i] = definitions.getAliases(names[i]);
+  }
+ }
+
+ /**
+  * Container that skips resetting the definitions registered while it is
+  * being populated. A new container has no merged definitions or
+  * singletons to reset, and each reset scans all other definitions,
+  * which makes registering many definitions take quadratic time.
+  */
+ @SuppressWarnings("serial")
+ private static class NewBeanFactory extends DefaultListableBeanFactory
+ {
+  @Override
+  protected void resetBeanDefinition(String beanName)
+  {
+   if (populated)
+    super.resetBeanDefinition(beanName);
+  }
+
+  boolean populated;
+ }
+
+ private final DefaultListableBeanFactory definitions;
+ private final String[] names;
+ private final RootBeanDefinition[] shared;
+ private final String[][] aliases;
+ private CommandIndex commandIndex;
+}
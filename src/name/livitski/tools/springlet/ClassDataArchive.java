@@ -0,0 +1,311 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * An application class-data sharing (AppCDS) archive that reduces
+ * the time a JVM spends loading and linking the application's classes.
+ * The archive is {@link #train(String[]) trained} by running the
+ * application with a representative command line in a separate JVM,
+ * which records the classes loaded by the framework, Spring, and the
+ * application. Along with the archive, training writes a file of JVM
+ * arguments, so that later runs can use the archive as:
+ * <pre>
+ * java @<em>archive-name</em>.args run <em>arguments</em>
+ * </pre>
+ * A JVM can only use an archive it was started with, so a
+ * {@link Launcher} cannot switch to the archive on its own. Instead,
+ * it {@link #isCurrent() checks} whether there is an archive that
+ * matches the current classpath and JVM, and suggests the above command
+ * when the JVM is not using it. Archives are stored next to the
+ * framework's JAR file unless the {@link #ARCHIVE_PROPERTY} system
+ * property names a different file. Training requires Java 10 or newer,
+ * and is faster with Java 13 or newer. The JVM only archives classes
+ * loaded from JAR files, so the application's classpath must not
+ * contain directories with classes.
+ */
+public class ClassDataArchive extends Logging
+{
+ /**
+  * Name of the system property with the path to the archive file.
+  */
+ public static final String ARCHIVE_PROPERTY = "springlet.cds.archive";
+
+ /**
+  * Default name of the archive file.
+  */
+ public static final String DEFAULT_ARCHIVE_NAME = "springlet.jsa";
+
+ /**
+  * Returns the archive configured by the {@link #ARCHIVE_PROPERTY}
+  * system property, or the default archive next to the framework's
+  * classes.
+  */
+ public static ClassDataArchive forSystemProperties()
+ {
+  final String path = System.getProperty(ARCHIVE_PROPERTY);
+  if (null != path && 0 < path.length())
+   return new ClassDataArchive(new File(path));
+  File location = null;
+  final CodeSource source = ClassDataArchive.class.getProtectionDomain().getCodeSource();
+  if (null != source)
+   try
+   {
+    location = new File(source.getLocation().toURI());
+   }
+   catch (URISyntaxException invalid) {}
+   catch (IllegalArgumentException notAFile) {}
+  final File dir = null == location ? new File(".")
+    : location.isDirectory() ? location : location.getParentFile();
+  return new ClassDataArchive(new File(dir, DEFAULT_ARCHIVE_NAME));
+ }
+
+ /**
+  * Tells whether the archive exists and was trained with the current
+  * classpath and JVM.
+  */
+ public boolean isCurrent()
+ {
+  if (!archive.isFile() || !getInfoFile().isFile())
+   return false;
+  final Properties info = new Properties();
+  try
+  {
+   final InputStream in = new FileInputStream(getInfoFile());
+   try
+   {
+    info.load(in);
+   }
+   finally
+   {
+    in.close();
+   }
+  }
+  catch (IOException e)
+  {
+   debug("Could not read {}", getInfoFile(), e);
+   return false;
+  }
+  final Properties current = describeJVM();
+  for (String key : current.stringPropertyNames())
+   if (!current.getProperty(key).equals(info.getProperty(key)))
+    return false;
+  return true;
+ }
+
+ /**
+  * Tells whether the running JVM was started with this archive.
+  */
+ public boolean isInUse()
+ {
+  final String option = SHARED_ARCHIVE_OPTION + archive.getAbsolutePath();
+  for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+   if (option.equals(arg))
+    return true;
+  return false;
+ }
+
+ /**
+  * Runs the application in a child JVM with the current classpath and
+  * system properties, records the classes it loads into the archive,
+  * and writes the {@link #getArgumentFile() JVM arguments file}. The
+  * child's standard streams are those of the current JVM.
+  * @param args the command line of a representative application run
+  * @return the status code of the training run
+  * @throws IOException if a child JVM could not be started, or the
+  * archive could not be created
+  * @throws InterruptedException if the current thread is interrupted
+  * while waiting for a child JVM
+  * @throws UnsupportedOperationException if the JVM is too old or the
+  * classpath contains a directory with classes
+  */
+ public int train(String[] args) throws IOException, InterruptedException
+ {
+  final int javaVersion = getJavaVersion();
+  if (MIN_JAVA_VERSION > javaVersion)
+   throw new UnsupportedOperationException("Application class-data sharing requires Java "
+     + MIN_JAVA_VERSION + " or newer, this JVM runs version " + javaVersion);
+  for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator))
+  {
+   final String[] contents = new File(entry).list();
+   if (null != contents && 0 < contents.length)
+    throw new UnsupportedOperationException("Application class-data sharing requires"
+      + " a classpath of JAR files, found directory " + entry);
+  }
+  final String path = archive.getAbsolutePath();
+  final int status;
+  if (DYNAMIC_ARCHIVE_JAVA_VERSION <= javaVersion)
+   status = runJVM(args, "-XX:ArchiveClassesAtExit=" + path);
+  else
+  {
+   final File classList = new File(path + ".classlist");
+   status = runJVM(args, "-XX:DumpLoadedClassList=" + classList.getAbsolutePath());
+   final int dumpStatus = runJVM(null, "-Xshare:dump",
+     "-XX:SharedClassListFile=" + classList.getAbsolutePath(),
+     SHARED_ARCHIVE_OPTION + path);
+   classList.delete();
+   if (0 != dumpStatus)
+    throw new IOException("Could not dump the class-data archive, JVM exited with status "
+      + dumpStatus);
+  }
+  if (!archive.isFile())
+   throw new IOException("Training run did not create archive " + archive);
+  writeInfo();
+  writeArgumentFile();
+  return status;
+ }
+
+ public File getArchive()
+ {
+  return archive;
+ }
+
+ /**
+  * Returns the file with JVM arguments that enable the archive.
+  */
+ public File getArgumentFile()
+ {
+  return siblingFile(".args");
+ }
+
+ /**
+  * @param archive the archive file
+  */
+ public ClassDataArchive(File archive)
+ {
+  this.archive = archive;
+ }
+
+ /**
+  * @param args the application's command line, or <code>null</code>
+  * to run the JVM without the application
+  * @param options JVM options to add to the current JVM's system properties
+  */
+ private int runJVM(String[] args, String... options)
+   throws IOException, InterruptedException
+ {
+  final List<String> command = new ArrayList<String>();
+  command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+  for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+   if (arg.startsWith("-D") && !arg.startsWith("-D" + ARCHIVE_PROPERTY + '='))
+    command.add(arg);
+  for (String option : options)
+   command.add(option);
+  command.add("-cp");
+  command.add(System.getProperty("java.class.path"));
+  if (null != args)
+  {
+   command.add(MAIN_CLASS);
+   for (String arg : args)
+    command.add(arg);
+  }
+  debug("Starting JVM: {}", command);
+  return new ProcessBuilder(command).inheritIO().start().waitFor();
+ }
+
+ private void writeInfo() throws IOException
+ {
+  final OutputStream out = new FileOutputStream(getInfoFile());
+  try
+  {
+   describeJVM().store(out, "Springlet class-data archive " + archive.getName());
+  }
+  finally
+  {
+   out.close();
+  }
+ }
+
+ private void writeArgumentFile() throws IOException
+ {
+  final PrintWriter out = new PrintWriter(new OutputStreamWriter(
+    new FileOutputStream(getArgumentFile()), "UTF-8"));
+  try
+  {
+   out.println(quote(SHARED_ARCHIVE_OPTION + archive.getAbsolutePath()));
+   out.println("-Xshare:auto");
+   out.println("-cp");
+   out.println(quote(System.getProperty("java.class.path")));
+  }
+  finally
+  {
+   out.close();
+  }
+ }
+
+ private static Properties describeJVM()
+ {
+  final Properties props = new Properties();
+  for (String key : new String[] { "java.class.path", "java.vm.vendor", "java.vm.version" })
+   props.setProperty(key, System.getProperty(key, ""));
+  return props;
+ }
+
+ private static String quote(String arg)
+ {
+  return '"' + arg.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+ }
+
+ private static int getJavaVersion()
+ {
+  final String spec = System.getProperty("java.specification.version", "0");
+  try
+  {
+   return Integer.parseInt(spec.startsWith("1.") ? spec.substring(2) : spec);
+  }
+  catch (NumberFormatException unknown)
+  {
+   return 0;
+  }
+ }
+
+ private File getInfoFile()
+ {
+  return siblingFile(".properties");
+ }
+
+ private File siblingFile(String suffix)
+ {
+  String name = archive.getName();
+  final int dot = name.lastIndexOf('.');
+  if (0 < dot)
+   name = name.substring(0, dot);
+  return new File(archive.getAbsoluteFile().getParentFile(), name + suffix);
+ }
+
+ private static final String SHARED_ARCHIVE_OPTION = "-XX:SharedArchiveFile=";
+ private static final String MAIN_CLASS = "run";
+ private static final int MIN_JAVA_VERSION = 10;
+ private static final int DYNAMIC_ARCHIVE_JAVA_VERSION = 13;
+
+ private final File archive;
+}
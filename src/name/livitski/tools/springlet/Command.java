@@ -41,7 +41,9 @@ import java.util.ListIterator;
  * have it injected using the same configuration file(s). It is not
  * recommended to inject direct references to
  * {@link Launcher#BEAN_NAME_MAIN the main bean}, though, since
- * that bean may be different in dependent projects. 
+ * that bean may be different in dependent projects. Injecting a
+ * {@link LazyApplicationBean} instead also avoids building the
+ * application when the command does not use it. 
  */
 public abstract class Command extends Logging
 {
@@ -102,14 +104,33 @@ public abstract class Command extends Logging
 
  /**
   * Returns the application class configured by
-  * this command.
+  * this command. If this command has received a
+  * {@link LazyApplicationBean lazy handle}, the handle's target
+  * is instantiated and returned.
   * @see #Command(ApplicationBean)
   */
  protected ApplicationBean getApplicationBean()
  {
+  if (appBean instanceof LazyApplicationBean)
+   return ((LazyApplicationBean)appBean).getTarget();
   return appBean;
  }
 
+ /**
+  * Returns the class of the application bean configured by
+  * this command without instantiating a
+  * {@link LazyApplicationBean lazily referenced} bean.
+  * @return the application bean's class or <code>null</code>
+  * if it cannot be determined
+  * @see #getApplicationBean()
+  */
+ protected Class<?> getApplicationBeanType()
+ {
+  if (appBean instanceof LazyApplicationBean)
+   return ((LazyApplicationBean)appBean).getTargetType();
+  return null == appBean ? null : appBean.getClass();
+ }
+
  /**
   * Attempts to obtain next argument for this command from the
   * command line. The supplied iterator is advanced if a candidate
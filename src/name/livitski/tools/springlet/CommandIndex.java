@@ -0,0 +1,324 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Maps command-line tokens, such as <code>--help</code> or <code>-?</code>,
+ * to the names of {@link Command} beans that handle them. The launcher
+ * uses this index to recognize commands and switches without querying
+ * the bean container for each argument. An index is either
+ * {@link #load() generated at build time} and stored in
+ * {@link #INDEX_RESOURCE} on the classpath, or
+ * {@link #scan(ListableBeanFactory) computed} from the bean definitions
+ * when the application starts. Run this class's {@link #main(String[])}
+ * method, e.g. via the <code>command-index</code> target of the
+ * project's build file, to generate the index for an application.
+ * Regenerate the index whenever the commands' configuration changes.
+ * Lookups walk a prefix trie of the indexed tokens, so they take time
+ * proportional to the argument's length and do not allocate memory.
+ * The trie also allows for {@link #lookup(String) unambiguous abbreviations}
+ * of long commands and {@link #lookupSwitch(String, int) clustered switches}.
+ */
+public class CommandIndex
+{
+ /**
+  * The name of a file at the root of the project's classpath
+  * that contains the pre-built command index.
+  */
+ public static final String INDEX_RESOURCE = "springlet/command-index.properties";
+
+ /**
+  * Generates the command index for the application configured
+  * by its {@link ProgrammaticConfiguration programmatic configuration}
+  * or {@link Launcher#MAIN_BEAN_CONFIG_FILE} on the classpath.
+  * @param args the name of the file to write the index into
+  */
+ public static void main(String[] args) throws IOException
+ {
+  if (1 != args.length)
+  {
+   System.err.println("Usage: java -cp {classpath} "
+     + CommandIndex.class.getName() + " output-file");
+   System.exit(Launcher.STATUS_COMMAND_PARSING_FAILURE);
+  }
+  final DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+  final ProgrammaticConfiguration program = ProgrammaticConfiguration.forSystemProperties();
+  if (null != program)
+   program.registerBeans(factory);
+  else
+  {
+   final ClassPathResource config = new ClassPathResource(Launcher.MAIN_BEAN_CONFIG_FILE);
+   if (!config.exists())
+   {
+    System.err.println("No " + Launcher.MAIN_BEAN_CONFIG_FILE
+      + " found on the classpath, command index not generated");
+    return;
+   }
+   final XmlBeanDefinitionReader xmlReader = new XmlBeanDefinitionReader(factory);
+   xmlReader.setValidating(false);
+   xmlReader.loadBeanDefinitions(config);
+  }
+  final File out = new File(args[0]);
+  final File dir = out.getParentFile();
+  if (null != dir && !dir.isDirectory() && !dir.mkdirs())
+   throw new IOException("Could not create directory " + dir);
+  final OutputStream stream = new FileOutputStream(out);
+  try
+  {
+   scan(factory).store(stream);
+  }
+  finally
+  {
+   stream.close();
+  }
+ }
+
+ /**
+  * Reads the pre-built index from the {@link #INDEX_RESOURCE classpath}.
+  * @return the index or <code>null</code> if there is no pre-built
+  * index on the classpath
+  * @throws IOException if there is an error reading the index
+  */
+ public static CommandIndex load() throws IOException
+ {
+  final InputStream in =
+    ClassUtils.getDefaultClassLoader().getResourceAsStream(INDEX_RESOURCE);
+  if (null == in)
+   return null;
+  try
+  {
+   final Properties props = new Properties();
+   props.load(in);
+   final CommandIndex index = new CommandIndex();
+   for (String token : props.stringPropertyNames())
+    index.put(token, props.getProperty(token));
+   return index;
+  }
+  finally
+  {
+   in.close();
+  }
+ }
+
+ /**
+  * Builds the index from names and aliases of beans defined in a
+  * container. Beans are not instantiated during this process.
+  * @param factory the container with command bean definitions
+  * @return the index of commands and switches defined in the container
+  */
+ public static CommandIndex scan(ListableBeanFactory factory)
+ {
+  final CommandIndex index = new CommandIndex();
+  for (String name : factory.getBeanDefinitionNames())
+  {
+   if (factory instanceof ConfigurableListableBeanFactory
+     && ((ConfigurableListableBeanFactory)factory).getBeanDefinition(name).isAbstract())
+    continue;
+   index.add(name, name);
+   for (String alias : factory.getAliases(name))
+    index.add(alias, name);
+  }
+  return index;
+ }
+
+ /**
+  * Finds the bean that handles a command-line argument. Arguments
+  * that start with {@link Command#COMMAND_PREFIX} also match
+  * the commands they are unambiguous abbreviations of, e.g.
+  * <code>--verb</code> matches <code>--verbose</code> unless there
+  * is another command that starts with <code>verb</code>.
+  * Exact matches take precedence over abbreviations.
+  * @param arg the argument, including its
+  * {@link Command#COMMAND_PREFIX command} or
+  * {@link Command#SWITCH_PREFIX switch} prefix
+  * @return the name of the handler bean or <code>null</code>
+  * if the argument is not a known command or switch
+  */
+ public String lookup(String arg)
+ {
+  final Node node = walk(root, arg, 0, arg.length());
+  if (null == node)
+   return null;
+  else if (null != node.beanName)
+   return node.beanName;
+  else if (arg.startsWith(Command.COMMAND_PREFIX)
+    && Command.COMMAND_PREFIX.length() < arg.length())
+   return node.ambiguous ? null : node.candidate;
+  else
+   return null;
+ }
+
+ /**
+  * Finds the bean that handles a single-character switch within
+  * a cluster, such as <code>-xvf</code>.
+  * @param arg the argument that contains a cluster of switches
+  * @param index position of the switch character within the argument
+  * @return the name of the handler bean or <code>null</code>
+  * if the character is not a known switch
+  */
+ public String lookupSwitch(String arg, int index)
+ {
+  final Node node = walk(switches, arg, index, index + 1);
+  return null == node ? null : node.beanName;
+ }
+
+ /**
+  * Returns the mapping of command-line tokens to handler bean names.
+  */
+ public Map<String, String> getEntries()
+ {
+  return Collections.unmodifiableMap(beanNames);
+ }
+
+ /**
+  * Writes this index in the format expected by {@link #load()}.
+  */
+ public void store(OutputStream out) throws IOException
+ {
+  final Properties props = new Properties();
+  props.putAll(beanNames);
+  props.store(out, "Springlet command index, generated by " + getClass().getName());
+ }
+
+ private void add(String name, String beanName)
+ {
+  if (name.startsWith(Launcher.BEAN_NAME_PREFIX_COMMAND))
+   put(Command.COMMAND_PREFIX
+     + name.substring(Launcher.BEAN_NAME_PREFIX_COMMAND.length()), beanName);
+  else if (name.startsWith(Launcher.BEAN_NAME_PREFIX_SWITCH))
+   put(Command.SWITCH_PREFIX
+     + name.substring(Launcher.BEAN_NAME_PREFIX_SWITCH.length()), beanName);
+ }
+
+ private void put(String token, String beanName)
+ {
+  beanNames.put(token, beanName);
+  Node node = root;
+  for (int i = 0, length = token.length(); ; i++)
+  {
+   node.offer(beanName);
+   if (length == i)
+    break;
+   node = node.child(token.charAt(i));
+  }
+  node.beanName = beanName;
+  final int prefixLength = Command.SWITCH_PREFIX.length();
+  if (prefixLength + 1 == token.length()
+    && token.startsWith(Command.SWITCH_PREFIX)
+    && !token.startsWith(Command.COMMAND_PREFIX))
+   switches.child(token.charAt(prefixLength)).beanName = beanName;
+ }
+
+ private static Node walk(Node node, String arg, int start, int end)
+ {
+  for (int i = start; null != node && end > i; i++)
+   node = node.find(arg.charAt(i));
+  return node;
+ }
+
+ private CommandIndex()
+ {
+  beanNames = new HashMap<String, String>();
+  root = new Node();
+  switches = new Node();
+ }
+
+ /**
+  * A node of the prefix trie. Stores the handler of the token spelled
+  * by the path to this node, if any, and the only handler of tokens
+  * that begin with that path, unless there are several.
+  */
+ private static class Node
+ {
+  Node find(char c)
+  {
+   int low = 0, high = keys.length - 1;
+   while (low <= high)
+   {
+    final int mid = (low + high) >>> 1;
+    final char key = keys[mid];
+    if (key < c)
+     low = mid + 1;
+    else if (key > c)
+     high = mid - 1;
+    else
+     return children[mid];
+   }
+   return null;
+  }
+
+  Node child(char c)
+  {
+   Node node = find(c);
+   if (null == node)
+   {
+    int at = 0;
+    while (keys.length > at && keys[at] < c)
+     at++;
+    final char[] newKeys = new char[keys.length + 1];
+    final Node[] newChildren = new Node[children.length + 1];
+    System.arraycopy(keys, 0, newKeys, 0, at);
+    System.arraycopy(children, 0, newChildren, 0, at);
+    System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+    System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+    newKeys[at] = c;
+    newChildren[at] = node = new Node();
+    keys = newKeys;
+    children = newChildren;
+   }
+   return node;
+  }
+
+  void offer(String handler)
+  {
+   if (null == candidate)
+    candidate = handler;
+   else if (!candidate.equals(handler))
+    ambiguous = true;
+  }
+
+  String beanName;
+  String candidate;
+  boolean ambiguous;
+  char[] keys = NO_KEYS;
+  Node[] children = NO_CHILDREN;
+
+  static final char[] NO_KEYS = {};
+  static final Node[] NO_CHILDREN = {};
+ }
+
+ private final Map<String, String> beanNames;
+ private final Node root;
+ private final Node switches;
+}
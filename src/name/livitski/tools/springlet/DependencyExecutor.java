@@ -0,0 +1,250 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the {@link AbstractApplicationBean#getDependencies() dependency beans}
+ * of a composite application. The executor walks the dependency graph,
+ * runs each bean once even if several beans depend on it, and starts a
+ * bean only after all of its own dependencies have completed with zero
+ * {@link ApplicationBean#getStatusCode() status}. Beans that do not depend
+ * on each other run concurrently on a pool of up to
+ * {@link #getParallelism()} threads. When a bean fails, the beans that
+ * depend on it are skipped, while independent beans keep running.
+ * Dependency beans run by an executor should not run their own dependencies,
+ * which is what {@link AbstractApplicationBean#runDependencies()} takes care of.
+ * @see #PARALLELISM_PROPERTY
+ */
+public class DependencyExecutor extends Logging
+{
+ /**
+  * Name of the system property that sets the default number
+  * of threads used to run dependency beans. When not set, the
+  * number of available processors is used.
+  */
+ public static final String PARALLELISM_PROPERTY = "springlet.dependencies.parallelism";
+
+ /**
+  * Tells whether the current thread is running a dependency bean
+  * on behalf of an executor.
+  */
+ public static boolean isExecuting()
+ {
+  return Boolean.TRUE.equals(EXECUTING.get());
+ }
+
+ /**
+  * Runs all direct and indirect dependencies of a composite
+  * application, but not the application itself.
+  * If a dependency bean throws an exception or an error, the first
+  * one thrown is re-thrown after all beans that can run have completed.
+  * @param root the composite application
+  * @return the root's {@link AbstractApplicationBean#getStatusCode() status code}
+  * after its dependencies have completed
+  * @throws IllegalStateException if the dependencies form a cycle
+  */
+ public int runDependencies(AbstractApplicationBean<?> root)
+ {
+  final Map<ApplicationBean, Node> nodes = new IdentityHashMap<ApplicationBean, Node>();
+  final List<Node> ready = new ArrayList<Node>();
+  for (ApplicationBean dependency : root.getDependencies())
+   addNode(dependency, nodes, ready, new IdentityHashMap<ApplicationBean, Boolean>());
+  if (!nodes.isEmpty())
+  {
+   final int threads = Math.min(parallelism, nodes.size());
+   final ExecutorService pool = Executors.newFixedThreadPool(threads, THREAD_FACTORY);
+   final Execution execution = new Execution(pool, nodes.size());
+   try
+   {
+    for (Node node : ready)
+     execution.submit(node);
+    execution.await();
+   }
+   catch (InterruptedException interrupt)
+   {
+    log().warn("Interrupted while running dependencies of " + root);
+    Thread.currentThread().interrupt();
+   }
+   finally
+   {
+    pool.shutdownNow();
+   }
+   final Throwable failure = execution.failure.get();
+   if (failure instanceof Error)
+    throw (Error)failure;
+   else if (failure instanceof RuntimeException)
+    throw (RuntimeException)failure;
+   else if (null != failure)
+    throw new IllegalStateException("Dependency bean failed", failure);
+  }
+  return root.getStatusCode();
+ }
+
+ public int getParallelism()
+ {
+  return parallelism;
+ }
+
+ /**
+  * Creates an executor with the default number of threads.
+  * @see #PARALLELISM_PROPERTY
+  */
+ public DependencyExecutor()
+ {
+  this(Integer.getInteger(PARALLELISM_PROPERTY,
+    Runtime.getRuntime().availableProcessors()));
+ }
+
+ /**
+  * @param parallelism maximum number of dependency beans
+  * that may run at the same time
+  */
+ public DependencyExecutor(int parallelism)
+ {
+  if (0 >= parallelism)
+   throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism);
+  this.parallelism = parallelism;
+ }
+
+ private static Node addNode(ApplicationBean bean, Map<ApplicationBean, Node> nodes,
+   List<Node> ready, Map<ApplicationBean, Boolean> path)
+ {
+  Node node = nodes.get(bean);
+  if (null != node)
+   return node;
+  if (null != path.put(bean, Boolean.TRUE))
+   throw new IllegalStateException("Application bean " + bean
+     + " depends on itself");
+  node = new Node(bean);
+  if (bean instanceof AbstractApplicationBean)
+  {
+   final Map<ApplicationBean, Boolean> distinct =
+     new IdentityHashMap<ApplicationBean, Boolean>();
+   for (ApplicationBean dependency : ((AbstractApplicationBean<?>)bean).getDependencies())
+    if (null == distinct.put(dependency, Boolean.TRUE))
+     addNode(dependency, nodes, ready, path).dependents.add(node);
+   node.pending.set(distinct.size());
+  }
+  path.remove(bean);
+  nodes.put(bean, node);
+  if (0 == node.pending.get())
+   ready.add(node);
+  return node;
+ }
+
+ private static class Node
+ {
+  Node(ApplicationBean bean)
+  {
+   this.bean = bean;
+  }
+
+  final ApplicationBean bean;
+  final List<Node> dependents = new ArrayList<Node>(2);
+  final AtomicInteger pending = new AtomicInteger();
+  volatile boolean blocked;
+ }
+
+ private class Execution
+ {
+  void submit(final Node node)
+  {
+   pool.execute(new Runnable()
+   {
+    public void run()
+    {
+     perform(node);
+    }
+   });
+  }
+
+  void await() throws InterruptedException
+  {
+   remaining.await();
+  }
+
+  private void perform(Node node)
+  {
+   boolean failed = node.blocked;
+   try
+   {
+    if (!failed)
+    {
+     EXECUTING.set(Boolean.TRUE);
+     node.bean.run();
+     failed = 0 != node.bean.getStatusCode();
+    }
+   }
+   catch (Throwable error)
+   {
+    failed = true;
+    failure.compareAndSet(null, error);
+    log().error("Dependency bean " + node.bean + " failed", error);
+   }
+   finally
+   {
+    EXECUTING.remove();
+    for (Node dependent : node.dependents)
+    {
+     if (failed)
+      dependent.blocked = true;
+     if (0 == dependent.pending.decrementAndGet())
+      submit(dependent);
+    }
+    remaining.countDown();
+   }
+  }
+
+  Execution(ExecutorService pool, int size)
+  {
+   this.pool = pool;
+   this.remaining = new CountDownLatch(size);
+  }
+
+  final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+  private final ExecutorService pool;
+  private final CountDownLatch remaining;
+ }
+
+ private static final ThreadLocal<Boolean> EXECUTING = new ThreadLocal<Boolean>();
+
+ private static final ThreadFactory THREAD_FACTORY = new ThreadFactory()
+ {
+  public Thread newThread(Runnable task)
+  {
+   final Thread thread = new Thread(task,
+     "springlet-dependency-" + counter.incrementAndGet());
+   thread.setDaemon(true);
+   return thread;
+  }
+
+  private final AtomicInteger counter = new AtomicInteger();
+ };
+
+ private final int parallelism;
+}
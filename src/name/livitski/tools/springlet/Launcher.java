@@ -18,22 +18,34 @@ package name.livitski.tools.springlet;
 
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
-import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 
 /**
  * Instantiates and runs the application bean as configured.
  * The framework reads the application's configuration from
- * {@link #MAIN_BEAN_CONFIG_FILE}. First, it tries to
+ * {@link #MAIN_BEAN_CONFIG_FILE}, unless the application has a
+ * {@link ProgrammaticConfiguration}. First, it tries to
  * {@link #withArguments(String[]) parse the command line}.
  * After successful parsing, the framework looks for the
  * {@link #BEAN_NAME_MAIN main application bean} there and tries
- * to {@link #run() launch it}.
+ * to {@link #run() launch it}. Parsed configuration can be
+ * {@link BeanDefinitionCache cached} between launches.
  */
 public class Launcher extends Logging
 {
@@ -83,6 +95,14 @@ public class Launcher extends Logging
   */
  public static final String BEAN_NAME_DEFAULT_HANDLER = "handler-default"; 
 
+ /**
+  * Name of the {@link Boolean} bean that, when <code>true</code>, lets
+  * command-line arguments refer to {@link ArgumentIterator argument files}.
+  * Argument files are disabled unless the application defines this bean,
+  * as <code>springlet/extra-commands.xml</code> does.
+  */
+ public static final String BEAN_NAME_ARGUMENT_FILES = "argument-files";
+
  /**
   * Name of the main {@link ApplicationBean application bean} to launch.
   */
@@ -101,11 +121,18 @@ public class Launcher extends Logging
   * its part that follows it is treated as a (long) command's name.
   * If an argument begins with {@link Command#SWITCH_PREFIX},
   * the following character(s) are treated as a switch.
+  * A long command may be abbreviated as long as the abbreviation
+  * is unambiguous. An argument that does not name a switch, but
+  * consists of several known single-character switches, is treated
+  * as a cluster of those switches, which are processed in the order
+  * they appear.
   * The name or switch extracted this way, prepended with
   * a bean name prefix for a {@link #BEAN_NAME_PREFIX_COMMAND command}
   * or a {@link #BEAN_NAME_PREFIX_SWITCH switch}, becomes the name
   * of a bean to look up in the framework's
   * {@link #MAIN_BEAN_CONFIG_FILE configuration file(s)}.
+  * Arguments are matched against the {@link #getCommandIndex() command index}
+  * first, so the container is only queried for recognized commands.
   * The bean that handles a command must extend the
   * {@link Command} class. Once a suitable bean is found,
   * it is called to act upon the command or switch and process
@@ -114,100 +141,116 @@ public class Launcher extends Logging
   * properly, it is considered unclaimed. You may configure a
   * special subclass of {@link Command} to process such arguments
   * by placing a bean named {@link #BEAN_NAME_DEFAULT_HANDLER} on
-  * the configuration. If there is no such bean configured, or when
+  * the configuration. A singleton default handler is reused for all
+  * unclaimed arguments, while a prototype is instantiated for each
+  * of them. If there is no such bean configured, or when
   * any {@link Command} bean throws an exception while processing
   * a command, a command line error is reported and the application
-  * quits.
+  * quits. Actions of {@link AsyncCommand asynchronous commands} are
+  * completed before this method returns.
+  * If {@link #isArgumentFilesEnabled() enabled}, arguments may refer
+  * to argument files as described by {@link ArgumentIterator}.
   * @param args the command line
   * @return this manager object
   */
  public Launcher withArguments(String[] args)
+ {
+  return withArguments(Arrays.asList(args).iterator());
+ }
+
+ /**
+  * Configures the manager using command-line arguments that are
+  * read as they are processed, so that there is no need to keep
+  * them all in memory.
+  * Commands receive a {@link ArgumentIterator} over the arguments.
+  * An iterator passed to this method is used as it is, otherwise
+  * argument files are expanded if they are
+  * {@link #isArgumentFilesEnabled() enabled}.
+  * @param args the command line
+  * @return this manager object
+  * @see #withArguments(String[])
+  */
+ public Launcher withArguments(Iterator<String> args)
  {
   configureDefaultLogging();
-  final Log log = log();
-  ListIterator<String> iargs = Arrays.asList(args).listIterator();
-  while (iargs.hasNext())
+  final ArgumentIterator iargs;
+  if (args instanceof ArgumentIterator)
+   iargs = (ArgumentIterator)args;
+  else
+  {
+   iargs = new ArgumentIterator(args);
+   iargs.setArgumentFiles(isArgumentFilesEnabled());
+  }
+  try
+  {
+   parseArguments(iargs);
+  }
+  catch (ArgumentIterator.ArgumentFileException e)
   {
-   String arg = iargs.next();
-   String prefix = null;
-   String beanPrefix = null;
+   parsingFailed(STATUS_COMMAND_PARSING_FAILURE, e.getMessage(), e);
+  }
+  finally
+  {
+   iargs.close();
+   completeActions();
+  }
+  return this;
+ }
+
+ private void parseArguments(ListIterator<String> iargs)
+ {
+  Command defaultHandler = null;
+  parsing: while (iargs.hasNext())
+  {
+   final String arg = iargs.next();
    Command cmd = null;
-   if (arg.startsWith(Command.COMMAND_PREFIX))
-    prefix = Command.COMMAND_PREFIX;
-   else if (arg.startsWith(Command.SWITCH_PREFIX))
-    prefix = Command.SWITCH_PREFIX;
-   if (null != prefix)
+   if (arg.startsWith(Command.SWITCH_PREFIX))
    {
-    arg = arg.substring(prefix.length());
-    beanPrefix = Command.SWITCH_PREFIX == prefix ?
-     BEAN_NAME_PREFIX_SWITCH : BEAN_NAME_PREFIX_COMMAND;
-    try
+    final CommandIndex index = getCommandIndex();
+    if (null == index)
     {
-     cmd = getBeanFactory().getBean(beanPrefix + arg, Command.class);
+     parsingFailed(STATUS_INTERNAL_ERROR,
+       "Could not look up the handler of command line argument " + arg, null);
+     break;
     }
-    catch (NoSuchBeanDefinitionException noBean)
+    final String beanName = index.lookup(arg);
+    if (null != beanName)
+     cmd = getCommand(beanName, arg);
+    else if (isSwitchCluster(index, arg))
     {
-     log.debug(
-       "Could not find a handler for command-line argument " + prefix + arg,
-       noBean);
+     for (int i = Command.SWITCH_PREFIX.length(); arg.length() > i; i++)
+     {
+      cmd = getCommand(index.lookupSwitch(arg, i), arg);
+      if (null == cmd || !process(cmd, arg, iargs))
+       break parsing;
+     }
+     continue;
     }
+    else
+     debug("Could not find a handler for command-line argument {}", arg);
    }
    if (null == cmd)
    {
     iargs.previous();
-    try
-    {
-     cmd = getBeanFactory().getBean(BEAN_NAME_DEFAULT_HANDLER, Command.class);
-    }
-    catch (RuntimeException ex)
-    {
-     log.error("Unknown command line argument: "
-       + (null != prefix ? prefix : "") + arg, ex);
-     status = STATUS_COMMAND_PARSING_FAILURE;
-     break;
-    }
+    if (null != defaultHandler)
+     cmd = defaultHandler;
+    else
+     try
+     {
+      cmd = getBeanFactory().getBean(BEAN_NAME_DEFAULT_HANDLER, Command.class);
+      // a prototype handler gets a new instance for each argument it claims
+      if (getBeanFactory().isSingleton(BEAN_NAME_DEFAULT_HANDLER))
+       defaultHandler = cmd;
+     }
+     catch (RuntimeException ex)
+     {
+      parsingFailed(STATUS_COMMAND_PARSING_FAILURE, "Unknown command line argument: " + arg, ex);
+      break;
+     }
    }
-   try
-   {
-    cmd.process(iargs);
-   }
-   catch (SkipApplicationRunRequest skip)
-   {
-    if (log.isTraceEnabled())
-     log.trace(
-       "Handler for argument " + (null != prefix ? prefix : "") + arg
-       + " requested to skip the application run", skip);
-    status = STATUS_RUN_SKIPPED;
-    break;
-   }
-   catch (RuntimeException err)
-   {
-    log.error("Invalid command line argument(s) near "
-      + (null != prefix ? prefix : "") + arg
-      + ": " + err.getMessage(), err);
-    status = STATUS_COMMAND_PARSING_FAILURE;
+   if (!process(cmd, arg, iargs))
     break;
-   }
-   catch (ApplicationBeanException err)
-   {
-    log.error("Error processing command line argument "
-      + (null != prefix ? prefix : "") + arg
-      + ": " + err.getMessage(), err);
-    try
-    {
-     err.updateBeanStatus();
-    }
-    catch (RuntimeException noStatus)
-    {
-     final ApplicationBean appBean = err.getApplicationBean();
-     log.warn("Could not obtain status code" +
-     	(null != appBean ? " from " + appBean : ""), noStatus);
-     status = STATUS_INTERNAL_ERROR;
-    }
-    break;
-   }
   }
-  return this;
  }
  
  public void run()
@@ -219,7 +262,18 @@ public class Launcher extends Logging
    if (null == applicationBean)
     status = STATUS_INTERNAL_ERROR;
    else
-    applicationBean.run();
+   {
+    warmUpSingletons();
+    final StartupProfiler.Phase phase = beginPhase(StartupProfiler.PHASE_RUN, null);
+    try
+    {
+     applicationBean.run();
+    }
+    finally
+    {
+     endPhase(phase);
+    }
+   }
   }
   catch(RuntimeException error)
   {
@@ -251,8 +305,64 @@ public class Launcher extends Logging
   return status;
  }
 
+ /**
+  * Runs the application with a command line and returns its exit
+  * code. Unlike the {@link run#main(String[]) main method}, this
+  * method does not terminate the JVM. If {@link StartupProfiler profiling}
+  * is enabled, reports the timings once the application completes.
+  * If the application's {@link Metrics metrics} have an
+  * {@link Metrics#setOutputFile(java.io.File) output file}, writes them
+  * there. The first launch within a JVM also checks whether there is a
+  * {@link ClassDataArchive class-data archive} the JVM could have
+  * been started with, and suggests using it.
+  * @param args the command line
+  * @return the {@link #getStatusCode() status code} of the application
+  */
+ public int launch(String[] args)
+ {
+  return launch(Arrays.asList(args).iterator());
+ }
+
+ /**
+  * Launches the application with command-line arguments that are
+  * read as they are processed.
+  * @param args the command line
+  * @return the {@link #getStatusCode() status code} of the application
+  * @see #launch(String[])
+  * @see #withArguments(Iterator)
+  */
+ public int launch(Iterator<String> args)
+ {
+  int status = withArguments(args).getStatusCode();
+  if (0 == status)
+  {
+   checkClassDataArchive();
+   run();
+   status = getStatusCode();
+  }
+  Metrics.writeDefaultOutput();
+  if (null != profiler)
+   profiler.report(System.err);
+  return status;
+ }
+
  public Launcher()
  {
+  this.template = null;
+  this.profiler = StartupProfiler.forSystemProperties();
+ }
+
+ /**
+  * Creates a launcher that takes the application's bean definitions
+  * from a template rather than reading its configuration.
+  * @param template the application's parsed configuration
+  */
+ public Launcher(BeanDefinitionTemplate template)
+ {
+  if (null == template)
+   throw new NullPointerException("Bean definition template is null");
+  this.template = template;
+  this.profiler = StartupProfiler.forSystemProperties();
  }
 
  protected ApplicationBean getApplicationBean()
@@ -269,18 +379,143 @@ public class Launcher extends Logging
   return appBean;
  }
 
+ /**
+  * Returns the index of commands and switches that this launcher
+  * recognizes. A {@link CommandIndex#load() pre-built index} is used
+  * if present, otherwise the index is
+  * {@link CommandIndex#scan(ListableBeanFactory) computed} from the
+  * bean definitions.
+  * @return the command index or <code>null</code> if it could not
+  * be obtained
+  */
+ protected CommandIndex getCommandIndex()
+ {
+  if (null == commandIndex)
+   try
+   {
+    commandIndex = null == template ? CommandIndex.load() : template.getCommandIndex();
+    if (null == commandIndex)
+    {
+     final BeanFactory factory = getBeanFactory();
+     if (!(factory instanceof ListableBeanFactory))
+      throw new UnsupportedOperationException("Launcher " + getClass()
+        + " requires a ListableBeanFactory container or a pre-built command index");
+     commandIndex = CommandIndex.scan((ListableBeanFactory)factory);
+    }
+   }
+   catch (Exception error)
+   {
+    log().fatal("Error indexing the application's commands", error);
+   }
+  return commandIndex;
+ }
+
+ /**
+  * Tells whether the application lets its arguments refer to
+  * argument files by defining the {@link #BEAN_NAME_ARGUMENT_FILES}
+  * bean.
+  */
+ public boolean isArgumentFilesEnabled()
+ {
+  try
+  {
+   final BeanFactory factory = getBeanFactory();
+   return factory.containsBean(BEAN_NAME_ARGUMENT_FILES)
+     && Boolean.TRUE.equals(factory.getBean(BEAN_NAME_ARGUMENT_FILES, Boolean.class));
+  }
+  catch (RuntimeException error)
+  {
+   log().warn("Could not find out whether argument files are enabled", error);
+   return false;
+  }
+ }
+
  protected BeanFactory getBeanFactory()
  {
   if (null == beanFactory)
   {
-   beanFactory = new DefaultListableBeanFactory();
-   final XmlBeanDefinitionReader xmlReader = new XmlBeanDefinitionReader(beanFactory);
-   xmlReader.setValidating(false);
-   xmlReader.loadBeanDefinitions(MAIN_BEAN_CONFIG_FILE);
+   final StartupProfiler.Phase phase = beginPhase(StartupProfiler.PHASE_CONTAINER, null);
+   try
+   {
+    beanFactory = createBeanFactory();
+   }
+   finally
+   {
+    endPhase(phase);
+   }
+   if (null != profiler)
+    beanFactory.addBeanPostProcessor(profiler.getBeanPostProcessor());
   }
   return beanFactory;
  }
 
+ /**
+  * Creates the container for this launcher's beans. Default
+  * implementation shares definitions with the
+  * {@link #Launcher(BeanDefinitionTemplate) template}, if any,
+  * or reads them from {@link #MAIN_BEAN_CONFIG_FILE}.
+  */
+ protected DefaultListableBeanFactory createBeanFactory()
+ {
+  if (null != template)
+   return template.newBeanFactory();
+  final DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+  loadBeanDefinitions(factory, profiler);
+  return factory;
+ }
+
+ /**
+  * Reads the application's bean definitions from its
+  * {@link ProgrammaticConfiguration programmatic configuration}, if
+  * there is one, otherwise from {@link #MAIN_BEAN_CONFIG_FILE} or the
+  * {@link BeanDefinitionCache definition cache}, if enabled.
+  * @param profiler the profiler that times reading of each
+  * configuration resource, or <code>null</code>
+  */
+ static void loadBeanDefinitions(DefaultListableBeanFactory beanFactory,
+   StartupProfiler profiler)
+ {
+  final ProgrammaticConfiguration program = ProgrammaticConfiguration.forSystemProperties();
+  if (null == program)
+  {
+   XmlConfiguration.loadBeanDefinitions(beanFactory, profiler);
+   return;
+  }
+  final StartupProfiler.Phase phase = null == profiler ? null
+    : profiler.begin(StartupProfiler.PHASE_RESOURCE, program.toString());
+  try
+  {
+   program.registerBeans(beanFactory);
+  }
+  finally
+  {
+   if (null != phase)
+    phase.end();
+  }
+ }
+
+ /**
+  * {@link SingletonWarmUp Warms up} the singleton beans created so far,
+  * which include the main bean and its dependencies. Called before the
+  * application runs.
+  * @see SingletonWarmUp#PARALLELISM_PROPERTY
+  */
+ protected void warmUpSingletons()
+ {
+  final BeanFactory factory = getBeanFactory();
+  if (!(factory instanceof ConfigurableListableBeanFactory))
+   return;
+  final StartupProfiler.Phase phase = beginPhase(StartupProfiler.PHASE_WARM_UP, null);
+  try
+  {
+   new SingletonWarmUp().warmUp((ConfigurableListableBeanFactory)factory);
+  }
+  finally
+  {
+   endPhase(phase);
+  }
+ }
+
  protected void configureJDKLogging()
  {
   InputStream cfg;
@@ -321,16 +556,281 @@ public class Launcher extends Logging
  /**
   * Configures the default logging for this application if necessary.
   */
- private void configureDefaultLogging()
+ void configureDefaultLogging()
  {
   if (!isLoggingConfigured)
   {
-   configureJDKLogging();
+   final StartupProfiler.Phase phase = beginPhase(StartupProfiler.PHASE_LOGGING, null);
+   try
+   {
+    configureJDKLogging();
+   }
+   finally
+   {
+    endPhase(phase);
+   }
    isLoggingConfigured = true;
+   LogLevelControl.startForSystemProperties();
+  }
+ }
+
+ private void checkClassDataArchive()
+ {
+  if (isArchiveChecked)
+   return;
+  isArchiveChecked = true;
+  final ClassDataArchive archive = ClassDataArchive.forSystemProperties();
+  if (archive.isCurrent() && !archive.isInUse())
+   log().info("Class-data archive " + archive.getArchive()
+     + " matches this application, run java @" + archive.getArgumentFile()
+     + " to start faster");
+ }
+
+ /**
+  * Tells whether an argument is a cluster of single-character
+  * switches, such as <code>-xvf</code>, that are all known to
+  * the command index.
+  */
+ private static boolean isSwitchCluster(CommandIndex index, String arg)
+ {
+  final int start = Command.SWITCH_PREFIX.length();
+  if (arg.startsWith(Command.COMMAND_PREFIX) || start + 2 > arg.length())
+   return false;
+  for (int i = start; arg.length() > i; i++)
+   if (null == index.lookupSwitch(arg, i))
+    return false;
+  return true;
+ }
+
+ private Command getCommand(String beanName, String arg)
+ {
+  try
+  {
+   return getBeanFactory().getBean(beanName, Command.class);
+  }
+  catch (NoSuchBeanDefinitionException noBean)
+  {
+   parsingFailed(STATUS_INTERNAL_ERROR, "Command index refers to missing handler "
+     + beanName + " for command-line argument " + arg, noBean);
+   return null;
   }
  }
 
+ /**
+  * Lets a command process its arguments and handles the outcome.
+  * @return whether the parsing should continue
+  */
+ private boolean process(Command cmd, String arg, ListIterator<String> iargs)
+ {
+  final StartupProfiler.Phase phase = beginPhase(StartupProfiler.PHASE_COMMAND, arg);
+  try
+  {
+   if (cmd instanceof AsyncCommand)
+   {
+    final Callable<?> action = ((AsyncCommand)cmd).parse(iargs);
+    if (null != action)
+     pendingActions.add(new PendingAction(arg, getActionExecutor().submit(action)));
+   }
+   else
+    cmd.process(iargs);
+   return true;
+  }
+  catch (RuntimeException err)
+  {
+   completeActions();
+   commandFailed(arg, err);
+  }
+  catch (ApplicationBeanException err)
+  {
+   completeActions();
+   commandFailed(arg, err);
+  }
+  finally
+  {
+   endPhase(phase);
+  }
+  return false;
+ }
+
+ /**
+  * Waits for the actions of {@link AsyncCommand asynchronous commands}
+  * to complete, and reports their failures in the order of the
+  * commands. Called before reporting a failure of a synchronous
+  * command, so that only the failure of the first argument, by its
+  * position on the command line, determines the status code.
+  */
+ private void completeActions()
+ {
+  while (!pendingActions.isEmpty())
+  {
+   final PendingAction action = pendingActions.removeFirst();
+   try
+   {
+    action.future.get();
+   }
+   catch (ExecutionException failure)
+   {
+    final Throwable cause = failure.getCause();
+    if (cause instanceof RuntimeException)
+     commandFailed(action.arg, (RuntimeException)cause);
+    else if (cause instanceof ApplicationBeanException)
+     commandFailed(action.arg, (ApplicationBeanException)cause);
+    else if (cause instanceof Exception)
+     commandFailed(action.arg, new IllegalStateException(cause.getMessage(), cause));
+    else if (isStatusDecided)
+     laterFailure(action.arg, cause);
+    else
+    {
+     log().fatal("Error processing command line argument " + action.arg, cause);
+     status = STATUS_INTERNAL_ERROR;
+     isStatusDecided = true;
+    }
+   }
+   catch (InterruptedException interrupt)
+   {
+    log().error("Interrupted while processing command line argument " + action.arg);
+    Thread.currentThread().interrupt();
+    for (PendingAction pending : pendingActions)
+     pending.future.cancel(true);
+    pendingActions.clear();
+    status = STATUS_INTERNAL_ERROR;
+    isStatusDecided = true;
+   }
+  }
+  if (null != actionExecutor)
+  {
+   actionExecutor.shutdown();
+   actionExecutor = null;
+  }
+ }
+
+ private void commandFailed(String arg, RuntimeException err)
+ {
+  if (err instanceof SkipApplicationRunRequest)
+  {
+   trace("Handler for argument {} requested to skip the application run", arg, err);
+   if (!isStatusDecided)
+    status = STATUS_RUN_SKIPPED;
+  }
+  else if (isStatusDecided)
+   laterFailure(arg, err);
+  else
+  {
+   log().error("Invalid command line argument(s) near "
+     + arg + ": " + err.getMessage(), err);
+   status = STATUS_COMMAND_PARSING_FAILURE;
+  }
+  isStatusDecided = true;
+ }
+
+ private void commandFailed(String arg, ApplicationBeanException err)
+ {
+  if (isStatusDecided)
+  {
+   laterFailure(arg, err);
+   return;
+  }
+  isStatusDecided = true;
+  final Log log = log();
+  log.error("Error processing command line argument "
+    + arg + ": " + err.getMessage(), err);
+  try
+  {
+   err.updateBeanStatus();
+  }
+  catch (RuntimeException noStatus)
+  {
+   final ApplicationBean appBean = err.getApplicationBean();
+   log.warn("Could not obtain status code" +
+   	(null != appBean ? " from " + appBean : ""), noStatus);
+   status = STATUS_INTERNAL_ERROR;
+  }
+ }
+
+ /**
+  * Reports an argument that could not be passed to a command. Like a
+  * failure of a command, it only determines the status code if the
+  * actions of earlier {@link AsyncCommand asynchronous commands} have
+  * succeeded.
+  */
+ private void parsingFailed(int failureStatus, String message, Throwable err)
+ {
+  completeActions();
+  if (isStatusDecided)
+   log().error(message + ", after an earlier argument stopped the processing", err);
+  else
+  {
+   log().error(message, err);
+   status = failureStatus;
+   isStatusDecided = true;
+  }
+ }
+
+ /**
+  * Reports a failure of an asynchronous command's action that completed
+  * after an earlier argument had stopped the processing.
+  */
+ private void laterFailure(String arg, Throwable err)
+ {
+  log().error("Command line argument " + arg + " failed after an earlier argument"
+    + " stopped the processing: " + err.getMessage(), err);
+ }
+
+ private StartupProfiler.Phase beginPhase(String type, String name)
+ {
+  return null == profiler ? null : profiler.begin(type, name);
+ }
+
+ private static void endPhase(StartupProfiler.Phase phase)
+ {
+  if (null != phase)
+   phase.end();
+ }
+
+ /**
+  * Starts the threads that perform actions of this launcher's
+  * {@link AsyncCommand asynchronous commands} when needed.
+  */
+ private ExecutorService getActionExecutor()
+ {
+  if (null == actionExecutor)
+   actionExecutor = Executors.newCachedThreadPool(ACTION_THREAD_FACTORY);
+  return actionExecutor;
+ }
+
+ private static class PendingAction
+ {
+  PendingAction(String arg, Future<?> future)
+  {
+   this.arg = arg;
+   this.future = future;
+  }
+
+  final String arg;
+  final Future<?> future;
+ }
+
+ private static final ThreadFactory ACTION_THREAD_FACTORY = new ThreadFactory()
+ {
+  public Thread newThread(Runnable task)
+  {
+   final Thread thread = new Thread(task, "springlet-command-" + counter.incrementAndGet());
+   thread.setDaemon(true);
+   return thread;
+  }
+
+  private final AtomicInteger counter = new AtomicInteger();
+ };
+
+ private static boolean isArchiveChecked;
+
  private int status;
  private ApplicationBean appBean;
+ private CommandIndex commandIndex;
+ private final LinkedList<PendingAction> pendingActions = new LinkedList<PendingAction>();
+ private ExecutorService actionExecutor;
+ private boolean isStatusDecided;
  private DefaultListableBeanFactory beanFactory;
+ private final BeanDefinitionTemplate template;
+ private final StartupProfiler profiler;
 }
@@ -0,0 +1,131 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+
+/**
+ * A handle to an {@link ApplicationBean application bean} that
+ * instantiates its target on first use. Inject this handle
+ * into {@link Command command beans} instead of the
+ * {@link Launcher#BEAN_NAME_MAIN main bean} so that parsing the
+ * command line does not build the application and its dependencies
+ * until a command actually needs them. The handle delegates
+ * {@link ApplicationBean} methods to its target, while
+ * {@link Command#getApplicationBean()} returns the target itself.
+ */
+public class LazyApplicationBean implements ApplicationBean, BeanFactoryAware
+{
+ /**
+  * Returns the target bean, instantiating it if necessary.
+  * @throws BeansException if the target bean cannot be
+  * obtained from the container
+  */
+ public ApplicationBean getTarget()
+ {
+  ApplicationBean bean = target;
+  if (null == bean)
+   synchronized (this)
+   {
+    bean = target;
+    if (null == bean)
+    {
+     if (null == beanFactory)
+      throw new IllegalStateException("Bean factory has not been set on " + this);
+     target = bean = beanFactory.getBean(targetBeanName, ApplicationBean.class);
+    }
+   }
+  return bean;
+ }
+
+ /**
+  * Determines the class of the target bean without instantiating
+  * it, if possible.
+  * @return the target bean's class or <code>null</code> if it cannot
+  * be determined
+  */
+ public Class<?> getTargetType()
+ {
+  final ApplicationBean bean = target;
+  if (null != bean)
+   return bean.getClass();
+  else if (null == beanFactory)
+   return null;
+  else
+   return beanFactory.getType(targetBeanName);
+ }
+
+ /**
+  * Tells whether the target bean has been obtained by this handle.
+  */
+ public boolean isResolved()
+ {
+  return null != target;
+ }
+
+ @Override
+ public void run()
+ {
+  getTarget().run();
+ }
+
+ @Override
+ public int getStatusCode()
+ {
+  return getTarget().getStatusCode();
+ }
+
+ @Override
+ public void updateStatus(ApplicationBeanException ex)
+ {
+  getTarget().updateStatus(ex);
+ }
+
+ public String getTargetBeanName()
+ {
+  return targetBeanName;
+ }
+
+ /**
+  * Changes the name of the target bean. Defaults to
+  * {@link Launcher#BEAN_NAME_MAIN}.
+  */
+ public void setTargetBeanName(String targetBeanName)
+ {
+  if (null != target)
+   throw new IllegalStateException("Target of " + this + " has already been resolved");
+  this.targetBeanName = targetBeanName;
+ }
+
+ @Override
+ public void setBeanFactory(BeanFactory beanFactory) throws BeansException
+ {
+  this.beanFactory = beanFactory;
+ }
+
+ @Override
+ public String toString()
+ {
+  return "lazy reference to bean '" + targetBeanName + "'";
+ }
+
+ private BeanFactory beanFactory;
+ private String targetBeanName = Launcher.BEAN_NAME_MAIN;
+ private volatile ApplicationBean target;
+}
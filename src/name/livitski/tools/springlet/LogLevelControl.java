@@ -0,0 +1,221 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Changes the log levels of subsystems in a running application.
+ * The levels may be changed through JMX, when the {@link #JMX_PROPERTY}
+ * system property is <code>true</code>, or by editing a control file
+ * named by the {@link #CONTROL_FILE_PROPERTY} system property. The
+ * control file contains properties that map subsystem names to levels,
+ * e.g.:
+ * <pre>
+ * com.example.app = FINE
+ * . = WARNING
+ * </pre>
+ * The file is checked for changes every few seconds. When a subsystem
+ * is removed from the file, it goes back to inheriting the level of its
+ * parent. {@link Launcher Launchers} start the control when they
+ * configure the default logging.
+ * @see Logging#setJDKLogLevel(Level, String)
+ */
+public class LogLevelControl extends Logging implements LogLevelControlMXBean
+{
+ /**
+  * Name of the system property that enables the JMX interface.
+  */
+ public static final String JMX_PROPERTY = "springlet.log.jmx";
+
+ /**
+  * Name of the system property with the path to the control file.
+  */
+ public static final String CONTROL_FILE_PROPERTY = "springlet.log.control";
+
+ /**
+  * Name of the system property with the number of milliseconds
+  * between checks of the control file. Defaults to <code>2000</code>.
+  */
+ public static final String CONTROL_INTERVAL_PROPERTY = "springlet.log.control.interval";
+
+ /**
+  * Name of the control's JMX bean.
+  */
+ public static final String OBJECT_NAME = "name.livitski.tools.springlet:type=LogLevelControl";
+
+ /**
+  * Starts the control as configured by the system properties, unless
+  * it has been started before by this JVM.
+  */
+ public static synchronized void startForSystemProperties()
+ {
+  if (isStarted)
+   return;
+  isStarted = true;
+  final LogLevelControl control = new LogLevelControl();
+  if (Boolean.getBoolean(JMX_PROPERTY))
+   try
+   {
+    control.registerMBean();
+   }
+   catch (JMException e)
+   {
+    control.log().warn("Could not register log level control with JMX", e);
+   }
+  final String path = System.getProperty(CONTROL_FILE_PROPERTY);
+  if (null != path && 0 < path.length())
+   control.watch(new File(path),
+     Long.getLong(CONTROL_INTERVAL_PROPERTY, DEFAULT_INTERVAL).longValue());
+ }
+
+ /**
+  * Registers this control with the platform's JMX server
+  * under {@link #OBJECT_NAME}.
+  */
+ public void registerMBean() throws JMException
+ {
+  ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+ }
+
+ /**
+  * Applies the levels from a control file now and whenever it changes.
+  * @param controlFile the file to watch
+  * @param interval the number of milliseconds between checks
+  */
+ public synchronized void watch(final File controlFile, long interval)
+ {
+  if (null == timer)
+   timer = new Timer("springlet-log-control", true);
+  checkControlFile(controlFile);
+  timer.schedule(new TimerTask() {
+   @Override
+   public void run()
+   {
+    checkControlFile(controlFile);
+   }
+  }, interval, interval);
+ }
+
+ public SortedMap<String, String> getLevels()
+ {
+  final SortedMap<String, String> levels = new TreeMap<String, String>();
+  for (Map.Entry<String, Level> entry : getJDKLogLevels().entrySet())
+   levels.put(toSubsystemName(entry.getKey()), entry.getValue().getName());
+  return levels;
+ }
+
+ public String getEffectiveLevel(String subsystem)
+ {
+  for (Logger logger = Logger.getLogger(toLoggerName(subsystem));
+    null != logger; logger = logger.getParent())
+   if (null != logger.getLevel())
+    return logger.getLevel().getName();
+  return null;
+ }
+
+ public void setLevel(String subsystem, String level)
+ {
+  final Level value = Level.parse(level.trim().toUpperCase());
+  setJDKLogLevel(value, toLoggerName(subsystem));
+  log().info("Log level of " + toSubsystemName(toLoggerName(subsystem)) + " set to " + value);
+ }
+
+ public void resetLevel(String subsystem)
+ {
+  setJDKLogLevel(null, toLoggerName(subsystem));
+  log().info("Log level of " + toSubsystemName(toLoggerName(subsystem)) + " reset");
+ }
+
+ private synchronized void checkControlFile(File file)
+ {
+  final long modified = file.lastModified();
+  if (modified == controlFileModified)
+   return;
+  controlFileModified = modified;
+  final Properties levels = new Properties();
+  if (0L != modified)
+   try
+   {
+    final InputStream in = new FileInputStream(file);
+    try
+    {
+     levels.load(in);
+    }
+    finally
+    {
+     in.close();
+    }
+   }
+   catch (IOException e)
+   {
+    log().warn("Could not read log level control file " + file, e);
+    return;
+   }
+  final Set<String> subsystems = levels.stringPropertyNames();
+  for (String subsystem : subsystems)
+   try
+   {
+    setLevel(subsystem, levels.getProperty(subsystem));
+   }
+   catch (IllegalArgumentException invalid)
+   {
+    log().warn("Invalid log level for " + subsystem + " in " + file + ": "
+      + levels.getProperty(subsystem));
+   }
+  for (String subsystem : controlledSubsystems)
+   if (!subsystems.contains(subsystem))
+    resetLevel(subsystem);
+  controlledSubsystems = subsystems;
+ }
+
+ private static String toLoggerName(String subsystem)
+ {
+  subsystem = null == subsystem ? "" : subsystem.trim();
+  return ROOT_SUBSYSTEM.equals(subsystem) ? "" : subsystem;
+ }
+
+ private static String toSubsystemName(String loggerName)
+ {
+  return 0 == loggerName.length() ? ROOT_SUBSYSTEM : loggerName;
+ }
+
+ private static final String ROOT_SUBSYSTEM = ".";
+ private static final long DEFAULT_INTERVAL = 2000L;
+ private static boolean isStarted;
+
+ private Timer timer;
+ private long controlFileModified;
+ private Set<String> controlledSubsystems = Collections.emptySet();
+}
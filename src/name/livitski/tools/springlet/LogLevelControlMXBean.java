@@ -0,0 +1,50 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.util.SortedMap;
+
+/**
+ * Management interface of the {@link LogLevelControl}. Subsystems are
+ * named as with the <code>--verbose</code> command, a period denotes
+ * the root logger. Levels are either numbers or names of
+ * {@link java.util.logging.Level} constants, case-insensitive.
+ */
+public interface LogLevelControlMXBean
+{
+ /**
+  * Returns the levels assigned to subsystems at run time or with the
+  * <code>--verbose</code> command.
+  */
+ SortedMap<String, String> getLevels();
+
+ /**
+  * Returns the level that applies to a subsystem, which may be
+  * inherited from its parent subsystems.
+  */
+ String getEffectiveLevel(String subsystem);
+
+ /**
+  * Changes the level of a subsystem.
+  */
+ void setLevel(String subsystem, String level);
+
+ /**
+  * Makes a subsystem inherit the level of its parent.
+  */
+ void resetLevel(String subsystem);
+}
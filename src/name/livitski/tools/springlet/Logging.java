@@ -19,21 +19,45 @@ package name.livitski.tools.springlet;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.commons.logging.impl.Jdk14Logger;
 
 /**
  * Base for classes that do their own logging.
  * Uses the Apache Commons logging framework over JUL.
+ * Besides the {@link #log() logger}, this class provides methods that
+ * compose messages only if they will be logged. Those methods either
+ * {@link #formatMessage(String, Object...) format} a pattern with
+ * arguments, or call a {@link LazyMessage}. Methods that take up to
+ * two arguments allocate nothing unless the message is logged.
+ * Subclasses can also record {@link Metrics metrics} tagged with
+ * their {@link #getMetricsScope() scope}.
  */
 public abstract class Logging
 {
+ /**
+  * A log message that is composed only if it will be logged.
+  */
+ public interface LazyMessage
+ {
+  /**
+   * Composes the message.
+   */
+  String compose();
+ }
+
  /**
   * Reads the JDK logging configuration from an input stream.
   * @param configDocumentStream the stream containing logging
@@ -50,13 +74,17 @@ public abstract class Logging
   * Changes the log level applied to a subsystem by the JDK logging.
   * The new level will apply to the subsystem itself and to its
   * descendants that haven't been assigned severity levels explicitly.
+  * This method may be called at any time by any thread.
   * @param level the lowest severity level of messages that will
-  * be logged for selected subsystem(s) from now on
+  * be logged for selected subsystem(s) from now on, or
+  * <code>null</code> to make the subsystem inherit the level of its
+  * parent subsystem
   * @param subsystem name of the subsystem that the new logging level
   * applies to, usually the name of a Java package or class, use
   * <code>null</code> to obtain the root logger from the JUL hierarchy
   * @see Logger#setLevel(Level)
   * @see LogManager
+  * @see #getJDKLogLevels()
   */
  public static void setJDKLogLevel(Level level, String subsystem)
  {
@@ -65,16 +93,63 @@ public abstract class Logging
   if (null == logger)
   {
    logger = Logger.getLogger(key);
-   jdkLoggers.put(key, logger);
+   final Logger existing = jdkLoggers.putIfAbsent(key, logger);
+   if (null != existing)
+    logger = existing;
   }
   logger.setLevel(level);
  }
 
+ /**
+  * Returns the log levels assigned to subsystems by
+  * {@link #setJDKLogLevel(Level, String)} that are still in effect.
+  * @return a sorted map of subsystem names to their levels, the root
+  * logger's level is mapped to an empty string
+  */
+ public static SortedMap<String, Level> getJDKLogLevels()
+ {
+  final SortedMap<String, Level> levels = new TreeMap<String, Level>();
+  for (Map.Entry<String, Logger> entry : jdkLoggers.entrySet())
+  {
+   final Level level = entry.getValue().getLevel();
+   if (null != level)
+    levels.put(entry.getKey(), level);
+  }
+  return levels;
+ }
+
  public static Log logForClass(Class<?> clazz)
  {
   return LogFactory.getLog(clazz);
  }
 
+ /**
+  * Substitutes arguments for the <code>{}</code> placeholders in a
+  * message pattern, in their order. Placeholders without arguments
+  * remain in the message, arguments without placeholders are ignored.
+  * @param pattern the message pattern
+  * @param args the arguments
+  * @return the message
+  */
+ public static String formatMessage(String pattern, Object... args)
+ {
+  final StringBuilder message = new StringBuilder(pattern.length() + 16 * args.length);
+  int start = 0;
+  for (Object arg : args)
+  {
+   final int at = pattern.indexOf(PLACEHOLDER, start);
+   if (0 > at)
+    break;
+   message.append(pattern, start, at);
+   if (arg instanceof Object[])
+    message.append(Arrays.deepToString((Object[])arg));
+   else
+    message.append(arg);
+   start = at + PLACEHOLDER.length();
+  }
+  return message.append(pattern, start, pattern.length()).toString();
+ }
+
  /**
   * Provides the logger to the implementing class.
   */
@@ -83,11 +158,308 @@ public abstract class Logging
   return logger;
  }
 
+ /**
+  * Logs a message at the trace level if that level is enabled.
+  * If the last argument is a {@link Throwable} that has no placeholder
+  * in the pattern, it is logged as the cause of the message. The same
+  * applies to the other methods that format messages.
+  * @see #formatMessage(String, Object...)
+  */
+ protected void trace(String pattern, Object arg)
+ {
+  if (logger.isTraceEnabled())
+   write(TRACE, pattern, new Object[] { arg });
+ }
+
+ protected void trace(String pattern, Object arg1, Object arg2)
+ {
+  if (logger.isTraceEnabled())
+   write(TRACE, pattern, new Object[] { arg1, arg2 });
+ }
+
+ protected void trace(String pattern, Object... args)
+ {
+  if (logger.isTraceEnabled())
+   write(TRACE, pattern, args);
+ }
+
+ protected void trace(LazyMessage message)
+ {
+  if (logger.isTraceEnabled())
+   write(TRACE, message.compose(), null);
+ }
+
+ /**
+  * Logs a message at the debug level if that level is enabled.
+  * @see #trace(String, Object)
+  */
+ protected void debug(String pattern, Object arg)
+ {
+  if (logger.isDebugEnabled())
+   write(DEBUG, pattern, new Object[] { arg });
+ }
+
+ protected void debug(String pattern, Object arg1, Object arg2)
+ {
+  if (logger.isDebugEnabled())
+   write(DEBUG, pattern, new Object[] { arg1, arg2 });
+ }
+
+ protected void debug(String pattern, Object... args)
+ {
+  if (logger.isDebugEnabled())
+   write(DEBUG, pattern, args);
+ }
+
+ protected void debug(LazyMessage message)
+ {
+  if (logger.isDebugEnabled())
+   write(DEBUG, message.compose(), null);
+ }
+
+ /**
+  * Logs a message at the info level if that level is enabled.
+  * @see #trace(String, Object)
+  */
+ protected void info(String pattern, Object arg)
+ {
+  if (logger.isInfoEnabled())
+   write(INFO, pattern, new Object[] { arg });
+ }
+
+ protected void info(String pattern, Object arg1, Object arg2)
+ {
+  if (logger.isInfoEnabled())
+   write(INFO, pattern, new Object[] { arg1, arg2 });
+ }
+
+ protected void info(String pattern, Object... args)
+ {
+  if (logger.isInfoEnabled())
+   write(INFO, pattern, args);
+ }
+
+ protected void info(LazyMessage message)
+ {
+  if (logger.isInfoEnabled())
+   write(INFO, message.compose(), null);
+ }
+
+ /**
+  * Logs a message at the warning level if that level is enabled.
+  * @see #trace(String, Object)
+  */
+ protected void warn(String pattern, Object arg)
+ {
+  if (logger.isWarnEnabled())
+   write(WARN, pattern, new Object[] { arg });
+ }
+
+ protected void warn(String pattern, Object arg1, Object arg2)
+ {
+  if (logger.isWarnEnabled())
+   write(WARN, pattern, new Object[] { arg1, arg2 });
+ }
+
+ protected void warn(String pattern, Object... args)
+ {
+  if (logger.isWarnEnabled())
+   write(WARN, pattern, args);
+ }
+
+ protected void warn(LazyMessage message)
+ {
+  if (logger.isWarnEnabled())
+   write(WARN, message.compose(), null);
+ }
+
+ /**
+  * Returns a counter of this object's {@link #getMetricsScope() scope}
+  * from the {@link Metrics#getDefault() default registry}.
+  * @see Metrics#counter(String, String)
+  */
+ protected Metrics.Counter counter(String name)
+ {
+  return Metrics.getDefault().counter(getMetricsScope(), name);
+ }
+
+ /**
+  * Returns a histogram of this object's {@link #getMetricsScope() scope}
+  * from the {@link Metrics#getDefault() default registry}.
+  * @see Metrics#histogram(String, String)
+  */
+ protected Metrics.Histogram histogram(String name)
+ {
+  return Metrics.getDefault().histogram(getMetricsScope(), name);
+ }
+
+ /**
+  * Registers a gauge of this object's {@link #getMetricsScope() scope}
+  * with the {@link Metrics#getDefault() default registry}.
+  * @see Metrics#gauge(String, String, Metrics.Gauge)
+  */
+ protected void gauge(String name, Metrics.Gauge gauge)
+ {
+  Metrics.getDefault().gauge(getMetricsScope(), name, gauge);
+ }
+
+ /**
+  * Returns the scope of metrics recorded by this object.
+  * Defaults to the name of its class.
+  */
+ protected String getMetricsScope()
+ {
+  return getClass().getName();
+ }
+
  protected Logging()
  {
   logger = logForClass(getClass());
  }
 
+ /**
+  * Formats and logs an enabled message. When the messages go to JUL,
+  * the caller's location is logged instead of this class. The stack
+  * is only walked to find the caller if a handler asks for the
+  * location.
+  * @param args the arguments to format the message with, or
+  * <code>null</code> if the message is already composed
+  */
+ private void write(int level, String message, Object[] args)
+ {
+  Throwable cause = null;
+  if (null != args)
+  {
+   if (0 < args.length && args[args.length - 1] instanceof Throwable)
+   {
+    int placeholders = 0;
+    for (int at = message.indexOf(PLACEHOLDER); 0 <= at && args.length > placeholders;
+      at = message.indexOf(PLACEHOLDER, at + PLACEHOLDER.length()))
+     placeholders++;
+    if (args.length > placeholders)
+     cause = (Throwable)args[args.length - 1];
+   }
+   message = formatMessage(message, args);
+  }
+  if (logger instanceof Jdk14Logger)
+  {
+   final Logger jdkLogger = ((Jdk14Logger)logger).getLogger();
+   final LogRecord record = new CallerRecord(JDK_LEVELS[level], message);
+   record.setLoggerName(jdkLogger.getName());
+   record.setThrown(cause);
+   jdkLogger.log(record);
+  }
+  else switch (level)
+  {
+  case TRACE:
+   logger.trace(message, cause);
+   break;
+  case DEBUG:
+   logger.debug(message, cause);
+   break;
+  case INFO:
+   logger.info(message, cause);
+   break;
+  default:
+   logger.warn(message, cause);
+  }
+ }
+
+ /**
+  * A JUL record that finds the code which called this class's
+  * logging methods when its location is first requested, rather
+  * than when it is created. Like any {@link LogRecord}, it must be
+  * asked for the location on the logging thread.
+  */
+ private static class CallerRecord extends LogRecord
+ {
+  @Override
+  public String getSourceClassName()
+  {
+   if (inferCaller)
+    inferCaller();
+   return super.getSourceClassName();
+  }
+
+  @Override
+  public void setSourceClassName(String sourceClassName)
+  {
+   inferCaller = false;
+   super.setSourceClassName(sourceClassName);
+  }
+
+  @Override
+  public String getSourceMethodName()
+  {
+   if (inferCaller)
+    inferCaller();
+   return super.getSourceMethodName();
+  }
+
+  @Override
+  public void setSourceMethodName(String sourceMethodName)
+  {
+   inferCaller = false;
+   super.setSourceMethodName(sourceMethodName);
+  }
+
+  CallerRecord(Level level, String message)
+  {
+   super(level, message);
+  }
+
+  private void inferCaller()
+  {
+   inferCaller = false;
+   String sourceClass = null, sourceMethod = null;
+   boolean inLogging = false;
+   for (StackTraceElement frame : new Throwable().getStackTrace())
+    if (Logging.class.getName().equals(frame.getClassName()))
+     inLogging = true;
+    else if (inLogging)
+    {
+     sourceClass = frame.getClassName();
+     sourceMethod = frame.getMethodName();
+     break;
+    }
+   super.setSourceClassName(sourceClass);
+   super.setSourceMethodName(sourceMethod);
+  }
+
+  private boolean inferCaller = true;
+
+  private static final long serialVersionUID = 1L;
+ }
+
+ private static final String PLACEHOLDER = "{}";
+ private static final int TRACE = 0, DEBUG = 1, INFO = 2, WARN = 3;
+ private static final Level[] JDK_LEVELS = { Level.FINEST, Level.FINE, Level.INFO, Level.WARNING };
+
  private Log logger;
- private static Map<String,Logger> jdkLoggers = new HashMap<String, Logger>();
+ /**
+  * Keeps the loggers configured by this class from being collected
+  * along with their levels.
+  */
+ private static final ConcurrentMap<String,Logger> jdkLoggers
+  = new ConcurrentHashMap<String, Logger>();
+
+ static final String COMMONS_LOGGING_FACTORY = "org.apache.commons.logging.impl.LogFactoryImpl";
+ static final String COMMONS_LOGGING_LOG = "org.apache.commons.logging.impl.Jdk14Logger";
+
+ /**
+  * A native image cannot look up the commons-logging implementation on
+  * the classpath, so the default factory and the JDK logger are chosen
+  * explicitly there, unless the application has chosen them.
+  * @see NativeImageConfig
+  */
+ static
+ {
+  if (null != System.getProperty(NativeImageConfig.IMAGE_CODE_PROPERTY))
+  {
+   if (null == System.getProperty(LogFactory.FACTORY_PROPERTY))
+    System.setProperty(LogFactory.FACTORY_PROPERTY, COMMONS_LOGGING_FACTORY);
+   if (null == System.getProperty(Log.class.getName()))
+    System.setProperty(Log.class.getName(), COMMONS_LOGGING_LOG);
+  }
+ }
 }
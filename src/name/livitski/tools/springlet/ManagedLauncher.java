@@ -35,6 +35,21 @@ public class ManagedLauncher extends Launcher implements BeanFactory
   isLoggingConfigured = true; 
  }
 
+ /**
+  * Creates a launcher that obtains the application's configuration
+  * from a template, so that its bean container can be set up without
+  * parsing the configuration files again. Launchers created from
+  * the same template share its bean definitions, so tests and other
+  * code that create many launchers should reuse a template.
+  * @param template the application's parsed configuration
+  * @see BeanDefinitionTemplate
+  */
+ public ManagedLauncher(BeanDefinitionTemplate template)
+ {
+  super(template);
+  isLoggingConfigured = true; 
+ }
+
  public ManagedLauncher withDefaultLogging()
  {
   configureJDKLogging();
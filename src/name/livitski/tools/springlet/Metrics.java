@@ -0,0 +1,495 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Registry of an application's counters, gauges and histograms.
+ * Each metric is identified by a scope, usually the name of the
+ * bean that records it, and a name within that scope. Beans obtain
+ * their metrics through {@link Logging#counter(String)},
+ * {@link Logging#histogram(String)} and
+ * {@link Logging#gauge(String, Gauge)}, and should keep them in
+ * fields rather than look them up for every update. Updates are
+ * lock-free, and each histogram takes a fixed amount of memory.
+ * The {@link #getDefault() default registry} can be written to a
+ * file when the application exits, e.g. by the
+ * <code>--metrics-out</code> command, and is exposed through JMX
+ * under {@link #OBJECT_NAME} when the {@link #JMX_PROPERTY} system
+ * property is <code>true</code>.
+ */
+public class Metrics extends Logging implements MetricsMXBean
+{
+ /**
+  * Name of the system property that enables the JMX interface.
+  */
+ public static final String JMX_PROPERTY = "springlet.metrics.jmx";
+
+ /**
+  * Name of the registry's JMX bean.
+  */
+ public static final String OBJECT_NAME = "name.livitski.tools.springlet:type=Metrics";
+
+ /**
+  * A metric that counts events.
+  */
+ public static final class Counter
+ {
+  public void increment()
+  {
+   value.incrementAndGet();
+  }
+
+  public void add(long delta)
+  {
+   value.addAndGet(delta);
+  }
+
+  public long get()
+  {
+   return value.get();
+  }
+
+  private Counter()
+  {
+  }
+
+  private final AtomicLong value = new AtomicLong();
+ }
+
+ /**
+  * A metric whose value is read when the registry is reported,
+  * such as the size of a queue.
+  */
+ public interface Gauge
+ {
+  long getValue();
+ }
+
+ /**
+  * A distribution of recorded values, such as latencies in
+  * nanoseconds. Values are counted in buckets whose width grows
+  * with their magnitude, so that percentiles are accurate to
+  * within 12.5% of the value while the histogram keeps a
+  * fixed number of counters. Negative values are recorded as zero.
+  */
+ public static final class Histogram
+ {
+  public void record(long value)
+  {
+   if (0 > value)
+    value = 0;
+   buckets.incrementAndGet(bucketOf(value));
+   sum.addAndGet(value);
+   for (long max; value > (max = this.max.get()) && !this.max.compareAndSet(max, value);)
+    ;
+   for (long min; value < (min = this.min.get()) && !this.min.compareAndSet(min, value);)
+    ;
+  }
+
+  /**
+   * Records the time elapsed since a moment returned by
+   * {@link System#nanoTime()}.
+   */
+  public void recordSince(long startNanos)
+  {
+   record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Returns the number of recorded values. Counting takes a pass over
+   * the buckets, so that recording does not update a shared total.
+   */
+  public long getCount()
+  {
+   long count = 0;
+   for (int i = 0; BUCKETS > i; i++)
+    count += buckets.get(i);
+   return count;
+  }
+
+  public long getMax()
+  {
+   return Long.MIN_VALUE == max.get() ? 0 : max.get();
+  }
+
+  public long getMin()
+  {
+   return Long.MAX_VALUE == min.get() ? 0 : min.get();
+  }
+
+  public long getMean()
+  {
+   final long count = getCount();
+   return 0 == count ? 0 : sum.get() / count;
+  }
+
+  /**
+   * Returns an estimate of a percentile of the recorded values.
+   * @param percent the percentile, from 0 to 100
+   */
+  public long getPercentile(double percent)
+  {
+   final long count = getCount();
+   if (0 == count)
+    return 0;
+   final long rank = Math.max(1, (long)Math.ceil(count * percent / 100.));
+   long seen = 0;
+   for (int i = 0; BUCKETS > i; i++)
+   {
+    seen += buckets.get(i);
+    if (seen >= rank)
+     return Math.max(Math.min(upperBoundOf(i), getMax()), getMin());
+   }
+   return getMax();
+  }
+
+  private static int bucketOf(long value)
+  {
+   if (SUB_BUCKETS > value)
+    return (int)value;
+   final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+   return (shift + 1) * SUB_BUCKETS + (int)((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  private static long upperBoundOf(int bucket)
+  {
+   if (SUB_BUCKETS > bucket)
+    return bucket;
+   final int shift = bucket / SUB_BUCKETS - 1;
+   final long lower = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+   return lower + (1L << shift) - 1;
+  }
+
+  private Histogram()
+  {
+  }
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+ }
+
+ /**
+  * Returns the registry shared by the application's beans,
+  * registering it with JMX if the {@link #JMX_PROPERTY} system
+  * property is <code>true</code>.
+  */
+ public static synchronized Metrics getDefault()
+ {
+  if (null == defaultRegistry)
+  {
+   defaultRegistry = new Metrics();
+   if (Boolean.getBoolean(JMX_PROPERTY))
+    try
+    {
+     ManagementFactory.getPlatformMBeanServer()
+       .registerMBean(defaultRegistry, new ObjectName(OBJECT_NAME));
+    }
+    catch (JMException e)
+    {
+     defaultRegistry.log().warn("Could not register metrics with JMX", e);
+    }
+  }
+  return defaultRegistry;
+ }
+
+ /**
+  * Returns a counter, creating it if necessary.
+  * @throws IllegalArgumentException if there is a different kind of
+  * metric with the same scope and name
+  */
+ public Counter counter(String scope, String name)
+ {
+  return get(scope, name, Counter.class);
+ }
+
+ /**
+  * Returns a histogram, creating it if necessary.
+  * @throws IllegalArgumentException if there is a different kind of
+  * metric with the same scope and name
+  */
+ public Histogram histogram(String scope, String name)
+ {
+  return get(scope, name, Histogram.class);
+ }
+
+ /**
+  * Registers a gauge, replacing any gauge with the same scope and name.
+  * @throws IllegalArgumentException if there is a different kind of
+  * metric with the same scope and name
+  */
+ public void gauge(String scope, String name, Gauge gauge)
+ {
+  final String key = keyOf(scope, name);
+  final Object existing = metrics.put(key, gauge);
+  if (null != existing && !(existing instanceof Gauge))
+  {
+   metrics.put(key, existing);
+   throw new IllegalArgumentException("Metric " + key + " is not a gauge");
+  }
+ }
+
+ /**
+  * Returns the current values of all metrics. Counters and gauges
+  * are listed by their names, prefixed by their scopes. Histograms
+  * contribute their <code>count</code>, <code>min</code>,
+  * <code>mean</code>, <code>p50</code>, <code>p90</code>,
+  * <code>p99</code>, and <code>max</code> statistics, with
+  * names of the statistics appended to the histogram's name.
+  */
+ public SortedMap<String, Long> getValues()
+ {
+  final SortedMap<String, Long> values = new TreeMap<String, Long>();
+  for (Map.Entry<String, Object> entry : metrics.entrySet())
+  {
+   final Object metric = entry.getValue();
+   if (metric instanceof Histogram)
+    for (Map.Entry<String, Long> statistic : statisticsOf((Histogram)metric).entrySet())
+     values.put(entry.getKey() + '.' + statistic.getKey(), statistic.getValue());
+   else
+    values.put(entry.getKey(), valueOf(metric));
+  }
+  return values;
+ }
+
+ /**
+  * Writes the current values of all metrics to a file. The file is
+  * written in the CSV format if its name ends with <code>.csv</code>,
+  * otherwise in JSON.
+  */
+ public void write(File file) throws IOException
+ {
+  final PrintWriter out = new PrintWriter(new OutputStreamWriter(
+    new FileOutputStream(file), "UTF-8"));
+  try
+  {
+   if (file.getName().toLowerCase().endsWith(".csv"))
+    writeCSV(out);
+   else
+    writeJSON(out);
+  }
+  finally
+  {
+   out.close();
+  }
+  if (out.checkError())
+   throw new IOException("Could not write metrics to " + file);
+ }
+
+ public void writeFile(String path) throws IOException
+ {
+  write(new File(path));
+ }
+
+ /**
+  * Writes the metrics as <code>metric,value</code> rows, using the
+  * names returned by {@link #getValues()}.
+  */
+ public void writeCSV(PrintWriter out)
+ {
+  out.println("metric,value");
+  for (Map.Entry<String, Long> entry : getValues().entrySet())
+   out.println(quoteCSV(entry.getKey()) + ',' + entry.getValue());
+ }
+
+ /**
+  * Writes the metrics as a JSON object with <code>counters</code>,
+  * <code>gauges</code> and <code>histograms</code> members.
+  */
+ public void writeJSON(PrintWriter out)
+ {
+  final SortedMap<String, Object> sorted = new TreeMap<String, Object>(metrics);
+  out.println('{');
+  int kind = 0;
+  for (Class<?> type : new Class<?>[] { Counter.class, Gauge.class, Histogram.class })
+  {
+   out.print(0 == kind++ ? " \"" : ",\n \"");
+   out.print(type.getSimpleName().toLowerCase() + "s\": {");
+   String separator = "\n  ";
+   for (Map.Entry<String, Object> entry : sorted.entrySet())
+    if (type.isInstance(entry.getValue()))
+    {
+     out.print(separator);
+     separator = ",\n  ";
+     out.print(quoteJSON(entry.getKey()) + ": ");
+     if (entry.getValue() instanceof Histogram)
+     {
+      out.print('{');
+      String inner = " ";
+      for (Map.Entry<String, Long> statistic
+        : statisticsOf((Histogram)entry.getValue()).entrySet())
+      {
+       out.print(inner + quoteJSON(statistic.getKey()) + ": " + statistic.getValue());
+       inner = ", ";
+      }
+      out.print(" }");
+     }
+     else
+      out.print(valueOf(entry.getValue()));
+    }
+   out.print(" }");
+  }
+  out.println();
+  out.println('}');
+ }
+
+ public File getOutputFile()
+ {
+  return outputFile;
+ }
+
+ /**
+  * Sets the file that receives the metrics when the application
+  * exits.
+  * @param outputFile the file or <code>null</code> to write no file
+  * @see #write(File)
+  */
+ public void setOutputFile(File outputFile)
+ {
+  this.outputFile = outputFile;
+ }
+
+ /**
+  * Discards all metrics.
+  */
+ public void clear()
+ {
+  metrics.clear();
+ }
+
+ @Override
+ public String toString()
+ {
+  return "metrics registry with " + metrics.size() + " metric(s)";
+ }
+
+ /**
+  * Writes the default registry to its {@link #setOutputFile(File)
+  * output file}, if the registry exists and has that file.
+  * {@link Launcher Launchers} call this method when the application
+  * exits.
+  */
+ static void writeDefaultOutput()
+ {
+  final Metrics registry;
+  synchronized (Metrics.class)
+  {
+   registry = defaultRegistry;
+  }
+  final File file = null == registry ? null : registry.getOutputFile();
+  if (null != file)
+   try
+   {
+    registry.write(file);
+    registry.debug("Wrote {} to {}", registry, file);
+   }
+   catch (IOException e)
+   {
+    registry.log().error("Could not write metrics to " + file, e);
+   }
+ }
+
+ private <M> M get(String scope, String name, Class<M> type)
+ {
+  final String key = keyOf(scope, name);
+  Object metric = metrics.get(key);
+  if (null == metric)
+  {
+   metric = Counter.class == type ? new Counter() : new Histogram();
+   final Object existing = metrics.putIfAbsent(key, metric);
+   if (null != existing)
+    metric = existing;
+  }
+  if (!type.isInstance(metric))
+   throw new IllegalArgumentException("Metric " + key + " is not a "
+     + type.getSimpleName().toLowerCase());
+  return type.cast(metric);
+ }
+
+ private long valueOf(Object metric)
+ {
+  if (metric instanceof Counter)
+   return ((Counter)metric).get();
+  try
+  {
+   return ((Gauge)metric).getValue();
+  }
+  catch (RuntimeException e)
+  {
+   log().warn("Could not read gauge " + metric, e);
+   return 0;
+  }
+ }
+
+ private static Map<String, Long> statisticsOf(Histogram histogram)
+ {
+  final Map<String, Long> statistics = new LinkedHashMap<String, Long>();
+  statistics.put("count", histogram.getCount());
+  statistics.put("min", histogram.getMin());
+  statistics.put("mean", histogram.getMean());
+  statistics.put("p50", histogram.getPercentile(50));
+  statistics.put("p90", histogram.getPercentile(90));
+  statistics.put("p99", histogram.getPercentile(99));
+  statistics.put("max", histogram.getMax());
+  return statistics;
+ }
+
+ private static String keyOf(String scope, String name)
+ {
+  return null == scope || 0 == scope.length() ? name : scope + '.' + name;
+ }
+
+ private static String quoteCSV(String text)
+ {
+  if (0 > text.indexOf(',') && 0 > text.indexOf('"'))
+   return text;
+  return '"' + text.replace("\"", "\"\"") + '"';
+ }
+
+ private static String quoteJSON(String text)
+ {
+  return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+ }
+
+ private static Metrics defaultRegistry;
+
+ private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<String, Object>();
+ private volatile File outputFile;
+}
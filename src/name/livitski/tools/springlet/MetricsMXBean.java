@@ -0,0 +1,41 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SortedMap;
+
+/**
+ * Management interface of the {@link Metrics} registry.
+ */
+public interface MetricsMXBean
+{
+ /**
+  * Returns the current values of all metrics, with histograms
+  * broken down into their statistics.
+  * @see Metrics#getValues()
+  */
+ SortedMap<String, Long> getValues();
+
+ /**
+  * Writes the current values of all metrics to a file.
+  * @param path the name of the file
+  * @see Metrics#write(File)
+  */
+ void writeFile(String path) throws IOException;
+}
@@ -0,0 +1,270 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+
+/**
+ * Generates the reflection and resource configuration that the GraalVM
+ * <code>native-image</code> tool needs to compile a Springlet application
+ * into a native executable. The generator reads the application's
+ * {@link ProgrammaticConfiguration programmatic configuration} or
+ * {@link Launcher#MAIN_BEAN_CONFIG_FILE} with its imports, and registers
+ * the classes of all beans defined there, including inner beans, for
+ * reflective instantiation and property injection. It also registers the
+ * configuration files and other resources the framework reads at run time,
+ * and the classes that commons-logging instantiates. The files are written
+ * in the format that <code>native-image</code> picks up from
+ * <code>META-INF/native-image</code> directories on the classpath.
+ * When running as a native executable, the framework configures
+ * commons-logging explicitly instead of discovering its implementation.
+ */
+public class NativeImageConfig
+{
+ /**
+  * The directory, relative to the root of the application's classpath,
+  * that the configuration is written to by default.
+  */
+ public static final String CONFIG_DIR = "META-INF/native-image/springlet";
+
+ /**
+  * The system property that is set when the code runs as a native image.
+  */
+ public static final String IMAGE_CODE_PROPERTY = "org.graalvm.nativeimage.imagecode";
+
+ /**
+  * Generates the configuration for the application on the classpath.
+  * @param args the name of the directory to write the configuration into
+  */
+ public static void main(String[] args) throws IOException
+ {
+  if (1 != args.length)
+  {
+   System.err.println("Usage: java -cp {classpath} "
+     + NativeImageConfig.class.getName() + " output-directory");
+   System.exit(Launcher.STATUS_COMMAND_PARSING_FAILURE);
+  }
+  final NativeImageConfig config = new NativeImageConfig();
+  final ProgrammaticConfiguration program = ProgrammaticConfiguration.forSystemProperties();
+  if (null != program)
+   config.scan(program);
+  else if (new ClassPathResource(Launcher.MAIN_BEAN_CONFIG_FILE).exists())
+   config.scan(Launcher.MAIN_BEAN_CONFIG_FILE);
+  else
+  {
+   System.err.println("No " + Launcher.MAIN_BEAN_CONFIG_FILE
+     + " found on the classpath, native image configuration not generated");
+   return;
+  }
+  config.write(new File(args[0]));
+ }
+
+ /**
+  * Registers the beans defined by a programmatic configuration.
+  */
+ public void scan(ProgrammaticConfiguration program)
+ {
+  classes.add(program.getClass().getName());
+  resources.add("META-INF/services/" + ProgrammaticConfiguration.class.getName());
+  final DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+  program.registerBeans(factory);
+  scan(factory);
+ }
+
+ /**
+  * Registers the beans defined by an XML configuration file and
+  * the files it imports, and the files themselves.
+  * @param location the location of the file on the classpath
+  */
+ public void scan(String location)
+ {
+  final DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+  final XmlBeanDefinitionReader xmlReader = new XmlBeanDefinitionReader(factory)
+  {
+   @Override
+   public int loadBeanDefinitions(EncodedResource resource)
+     throws BeanDefinitionStoreException
+   {
+    final Resource file = resource.getResource();
+    if (file instanceof ClassPathResource)
+     resources.add(((ClassPathResource)file).getPath());
+    return super.loadBeanDefinitions(resource);
+   }
+  };
+  xmlReader.setValidating(false);
+  xmlReader.loadBeanDefinitions(location);
+  scan(factory);
+ }
+
+ /**
+  * Registers the classes of beans defined in a container.
+  */
+ public void scan(DefaultListableBeanFactory factory)
+ {
+  for (String name : factory.getBeanDefinitionNames())
+  {
+   final BeanDefinition definition = factory.getMergedBeanDefinition(name);
+   if (!definition.isAbstract())
+    addClass(definition.getBeanClassName());
+   addValues(definition);
+  }
+ }
+
+ /**
+  * Writes <code>reflect-config.json</code>,
+  * <code>resource-config.json</code>, and
+  * <code>native-image.properties</code> into a directory.
+  */
+ public void write(File dir) throws IOException
+ {
+  if (!dir.isDirectory() && !dir.mkdirs())
+   throw new IOException("Could not create directory " + dir);
+  PrintWriter out = open(new File(dir, "reflect-config.json"));
+  try
+  {
+   out.println('[');
+   for (Iterator<String> i = classes.iterator(); i.hasNext();)
+    out.println(" { \"name\": " + quote(i.next())
+      + ", \"allDeclaredConstructors\": true, \"allPublicMethods\": true }"
+      + (i.hasNext() ? "," : ""));
+   out.println(']');
+  }
+  finally
+  {
+   out.close();
+  }
+  out = open(new File(dir, "resource-config.json"));
+  try
+  {
+   out.println("{ \"resources\": { \"includes\": [");
+   for (Iterator<String> i = resources.iterator(); i.hasNext();)
+    out.println(" { \"pattern\": " + quote("\\Q" + i.next() + "\\E") + " }"
+      + (i.hasNext() ? "," : ""));
+   out.println("] } }");
+  }
+  finally
+  {
+   out.close();
+  }
+  out = open(new File(dir, "native-image.properties"));
+  try
+  {
+   out.println("Args = --no-fallback");
+  }
+  finally
+  {
+   out.close();
+  }
+ }
+
+ public Set<String> getClasses()
+ {
+  return classes;
+ }
+
+ public Set<String> getResources()
+ {
+  return resources;
+ }
+
+ /**
+  * Creates a generator with the classes and resources the
+  * framework always uses.
+  */
+ public NativeImageConfig()
+ {
+  addClass(LazyApplicationBean.class.getName());
+  addClass(Logging.COMMONS_LOGGING_FACTORY);
+  addClass(Logging.COMMONS_LOGGING_LOG);
+  resources.add(Launcher.LOG_PROPERTIES_FILE);
+  resources.add(CommandIndex.INDEX_RESOURCE);
+ }
+
+ private void addClass(String name)
+ {
+  if (null != name)
+   classes.add(name);
+ }
+
+ private void addValues(BeanDefinition definition)
+ {
+  final ConstructorArgumentValues args = definition.getConstructorArgumentValues();
+  for (ConstructorArgumentValues.ValueHolder arg : args.getIndexedArgumentValues().values())
+   addValue(arg.getValue());
+  for (ConstructorArgumentValues.ValueHolder arg : args.getGenericArgumentValues())
+   addValue(arg.getValue());
+  for (PropertyValue property : definition.getPropertyValues().getPropertyValueList())
+   addValue(property.getValue());
+ }
+
+ /**
+  * Registers inner beans found in a constructor argument or property value.
+  */
+ private void addValue(Object value)
+ {
+  if (value instanceof BeanDefinitionHolder)
+   value = ((BeanDefinitionHolder)value).getBeanDefinition();
+  if (value instanceof BeanDefinition)
+  {
+   addClass(((BeanDefinition)value).getBeanClassName());
+   addValues((BeanDefinition)value);
+  }
+  else if (value instanceof Collection)
+   for (Object element : (Collection<?>)value)
+    addValue(element);
+  else if (value instanceof Map)
+   for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet())
+   {
+    addValue(entry.getKey());
+    addValue(entry.getValue());
+   }
+ }
+
+ private static PrintWriter open(File file) throws IOException
+ {
+  return new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+ }
+
+ private static String quote(String text)
+ {
+  return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+ }
+
+ private final SortedSet<String> classes = new TreeSet<String>();
+ private final SortedSet<String> resources = new TreeSet<String>();
+}
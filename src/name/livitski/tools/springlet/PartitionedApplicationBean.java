@@ -0,0 +1,335 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Application bean that splits its work into independent units and
+ * processes them concurrently. Subclasses either list the units in
+ * {@link #getWorkUnits()} or receive them from the command line via
+ * {@link #addWorkUnit(Object)}, for instance by declaring a
+ * {@link name.livitski.tools.springlet.commands.WorkUnitsCommand}
+ * as the {@link Launcher#BEAN_NAME_DEFAULT_HANDLER default handler}
+ * of unclaimed arguments. The {@link #run()} method runs the
+ * {@link #getDependencies() dependencies} first, then submits each
+ * unit to a work-stealing pool of up to {@link #getParallelism()}
+ * threads and waits for all of them to complete. Units are submitted
+ * in order, and no more than a few units per thread are waiting in the
+ * pool at any time, so that units can be produced lazily.
+ * The {@link #getLocalStatus() local status} of this bean is the
+ * status of the first unit, in submission order, that reported a
+ * non-zero status, which keeps the status code of a run independent
+ * of the order the units complete in. If a unit throws an exception
+ * or an error, the remaining units are still processed, and the
+ * exception or error of the first such unit is re-thrown from
+ * {@link #run()}.
+ * @param <Status> enumerated type that lists
+ * {@link #getLocalStatus() local status values} this application
+ * bean and its units may return
+ * @param <Unit> type of work units
+ * @see #PARALLELISM_PROPERTY
+ */
+public abstract class PartitionedApplicationBean<Status extends Enum<Status>, Unit>
+	extends AbstractApplicationBean<Status>
+{
+ /**
+  * Name of the system property that sets the default number
+  * of threads used to process work units. When not set, the
+  * number of available processors is used.
+  */
+ public static final String PARALLELISM_PROPERTY = "springlet.partitions.parallelism";
+
+ /**
+  * Processes a work unit. This method may be called concurrently
+  * for different units.
+  * @return the status of the unit, <code>null</code> or the
+  * status with zero ordinal if it succeeded
+  * @throws ApplicationBeanException to report a failure that this
+  * bean {@link #getUnitStatus(Object, ApplicationBeanException) maps}
+  * to the status of the unit
+  */
+ protected abstract Status runUnit(Unit unit) throws ApplicationBeanException;
+
+ /**
+  * Override to map exceptions thrown by {@link #runUnit(Object)} to
+  * the status of the unit that threw them. This method may be called
+  * concurrently for different units. Default implementation throws an
+  * {@link UnsupportedOperationException}, which makes the unit fail
+  * as if it threw that exception.
+  * @return the status of the unit
+  */
+ protected Status getUnitStatus(Unit unit, ApplicationBeanException failure)
+ {
+  throw new UnsupportedOperationException("Application "
+    + this + " does not implement exception to exit code mapping.");
+ }
+
+ /**
+  * Returns the units to process. Called once per {@link #run()} from
+  * the thread that runs the bean. The default implementation returns
+  * the units {@link #addWorkUnit(Object) added} to this bean since
+  * the last call, so that each added unit is processed once.
+  */
+ protected Iterable<? extends Unit> getWorkUnits()
+ {
+  final List<Unit> units = new ArrayList<Unit>();
+  for (Unit unit; null != (unit = addedUnits.poll());)
+   units.add(unit);
+  return Collections.unmodifiableList(units);
+ }
+
+ /**
+  * Adds a unit to be processed on the next {@link #run()}.
+  */
+ public void addWorkUnit(Unit unit)
+ {
+  addedUnits.add(unit);
+ }
+
+ /**
+  * Processes the work units, unless the {@link #getDependencies()
+  * dependencies} of this bean have failed.
+  */
+ @Override
+ public void run()
+ {
+  firstFailure.set(null);
+  failedUnits.set(0L);
+  processedUnits.set(0L);
+  if (0 != runDependencies())
+   return;
+  final int parallelism = getParallelism();
+  final ForkJoinPool pool = new ForkJoinPool(parallelism);
+  final Semaphore slots = new Semaphore(parallelism * QUEUED_UNITS_PER_THREAD);
+  final AtomicReference<Failure> error = new AtomicReference<Failure>();
+  long count = 0;
+  try
+  {
+   for (Unit unit : getWorkUnits())
+   {
+    slots.acquire();
+    pool.execute(new UnitTask(unit, count++, slots, error));
+   }
+   slots.acquire(parallelism * QUEUED_UNITS_PER_THREAD);
+  }
+  catch (InterruptedException interrupt)
+  {
+   warn("Interrupted while processing work units of {}", this);
+   Thread.currentThread().interrupt();
+  }
+  finally
+  {
+   pool.shutdown();
+   try
+   {
+    pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+   }
+   catch (InterruptedException interrupt)
+   {
+    pool.shutdownNow();
+    Thread.currentThread().interrupt();
+   }
+  }
+  debug("Processed {} work unit(s) of {}, {} failed", processedUnits, this, failedUnits);
+  final Failure failure = error.get();
+  if (null == failure)
+   return;
+  else if (failure.exception instanceof Error)
+   throw (Error)failure.exception;
+  else if (failure.exception instanceof RuntimeException)
+   throw (RuntimeException)failure.exception;
+  else
+   throw new IllegalStateException("Work unit failed", failure.exception);
+ }
+
+ /**
+  * Returns the status of the first unit that failed during the
+  * last {@link #run()}, or <code>null</code> if none did.
+  * Override to report failures that are not related to units,
+  * falling back to this implementation.
+  */
+ @Override
+ public Status getLocalStatus()
+ {
+  final Failure failure = firstFailure.get();
+  return null == failure ? null : failure.status;
+ }
+
+ /**
+  * Returns the number of units processed during the last {@link #run()}.
+  */
+ public long getProcessedUnitCount()
+ {
+  return processedUnits.get();
+ }
+
+ /**
+  * Returns the number of units that reported a non-zero status or
+  * threw an exception during the last {@link #run()}.
+  */
+ public long getFailedUnitCount()
+ {
+  return failedUnits.get();
+ }
+
+ public int getParallelism()
+ {
+  return parallelism;
+ }
+
+ /**
+  * Sets the maximum number of units processed at the same time.
+  * @see #PARALLELISM_PROPERTY
+  */
+ public void setParallelism(int parallelism)
+ {
+  if (0 >= parallelism)
+   throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism);
+  this.parallelism = parallelism;
+ }
+
+ /**
+  * @see AbstractApplicationBean#AbstractApplicationBean(Enum)
+  */
+ protected PartitionedApplicationBean(Enum<Status> okStatus)
+ {
+  super(okStatus);
+  setParallelism(Integer.getInteger(PARALLELISM_PROPERTY,
+    Runtime.getRuntime().availableProcessors()));
+ }
+
+ /**
+  * Records the status of a unit if it is the first unit in
+  * submission order that reported a non-zero status.
+  */
+ private void unitFailed(Failure failure)
+ {
+  failedUnits.incrementAndGet();
+  for (;;)
+  {
+   final Failure first = firstFailure.get();
+   if (null != first && first.index < failure.index)
+    break;
+   if (firstFailure.compareAndSet(first, failure))
+    break;
+  }
+ }
+
+ private class Failure
+ {
+  Failure(long index, Status status, Throwable exception)
+  {
+   this.index = index;
+   this.status = status;
+   this.exception = exception;
+  }
+
+  final long index;
+  final Status status;
+  final Throwable exception;
+ }
+
+ private class UnitTask implements Runnable
+ {
+  public void run()
+  {
+   try
+   {
+    final Status status = runUnit(unit);
+    if (null != status && 0 < status.ordinal())
+    {
+     debug("Work unit {} of {} completed with status {}", unit, PartitionedApplicationBean.this, status);
+     unitFailed(new Failure(index, status, null));
+    }
+   }
+   catch (ApplicationBeanException failure)
+   {
+    debug("Work unit {} of {} failed", unit, PartitionedApplicationBean.this, failure);
+    final Status status;
+    try
+    {
+     status = getUnitStatus(unit, failure);
+    }
+    catch (Throwable noStatus)
+    {
+     warn("Could not obtain status code of work unit {} from {}",
+       unit, PartitionedApplicationBean.this, noStatus);
+     errorThrown(noStatus);
+     return;
+    }
+    unitFailed(new Failure(index, status, null));
+   }
+   catch (Throwable failure)
+   {
+    log().error("Work unit " + unit + " of " + PartitionedApplicationBean.this + " failed", failure);
+    errorThrown(failure);
+   }
+   finally
+   {
+    processedUnits.incrementAndGet();
+    slots.release();
+   }
+  }
+
+  /**
+   * Records an exception or error to be re-thrown from {@link
+   * PartitionedApplicationBean#run()} if this unit is the first
+   * one in submission order that threw.
+   */
+  private void errorThrown(Throwable failure)
+  {
+   final Failure record = new Failure(index, null, failure);
+   failedUnits.incrementAndGet();
+   for (;;)
+   {
+    final Failure first = error.get();
+    if ((null != first && first.index < index) || error.compareAndSet(first, record))
+     break;
+   }
+  }
+
+  UnitTask(Unit unit, long index, Semaphore slots, AtomicReference<Failure> error)
+  {
+   this.unit = unit;
+   this.index = index;
+   this.slots = slots;
+   this.error = error;
+  }
+
+  private final Unit unit;
+  private final long index;
+  private final Semaphore slots;
+  private final AtomicReference<Failure> error;
+ }
+
+ private static final int QUEUED_UNITS_PER_THREAD = 2;
+
+ private int parallelism;
+ private final ConcurrentLinkedQueue<Unit> addedUnits = new ConcurrentLinkedQueue<Unit>();
+ private final AtomicReference<Failure> firstFailure = new AtomicReference<Failure>();
+ private final AtomicLong failedUnits = new AtomicLong();
+ private final AtomicLong processedUnits = new AtomicLong();
+}
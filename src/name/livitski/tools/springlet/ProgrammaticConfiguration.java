@@ -0,0 +1,246 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import name.livitski.tools.springlet.commands.ArgsFromStdinCommand;
+import name.livitski.tools.springlet.commands.CdsTrainCommand;
+import name.livitski.tools.springlet.commands.HelpCommand;
+import name.livitski.tools.springlet.commands.MetricsOutCommand;
+import name.livitski.tools.springlet.commands.VerboseCommand;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+
+/**
+ * Configures an application's beans in code instead of
+ * {@link Launcher#MAIN_BEAN_CONFIG_FILE}. When a launcher finds
+ * a programmatic configuration, it does not read XML files at all,
+ * which saves the time spent loading and running the XML parser.
+ * Subclasses implement {@link #configure()} by calling the methods
+ * that define the {@link #main(Class) main bean},
+ * {@link #command(String, Class) commands},
+ * {@link #switchCommand(char, Class) switches}, and the
+ * {@link #defaultHandler(Class) default handler}, and may call
+ * {@link #frameworkCommands()} to add the commands that
+ * <code>springlet/commands.xml</code> provides to XML configurations,
+ * and {@link #extraFrameworkCommands()} to add the optional ones from
+ * <code>springlet/extra-commands.xml</code>.
+ * Each of these methods returns a {@link BeanDefinitionBuilder} that
+ * can add constructor arguments and properties to the bean. Commands
+ * inherit from the {@link #TEMPLATE_MAIN} template, which passes them
+ * a {@link LazyApplicationBean} handle to the main bean, and more
+ * templates can be defined with {@link #template(String, Class)}.
+ * A launcher uses the configuration named by the {@link #CLASS_PROPERTY}
+ * system property, or else the first one registered as a
+ * {@link ServiceLoader service provider} of this class in
+ * <code>META-INF/services/name.livitski.tools.springlet.ProgrammaticConfiguration</code>.
+ * Implementations must have a public no-argument constructor.
+ */
+public abstract class ProgrammaticConfiguration
+{
+ /**
+  * Name of the system property with the class name of the
+  * programmatic configuration to use.
+  */
+ public static final String CLASS_PROPERTY = "springlet.configuration.class";
+
+ /**
+  * Name of the abstract bean that {@link #command(String, Class) commands}
+  * inherit from by default.
+  */
+ public static final String TEMPLATE_MAIN = "template-main";
+
+ /**
+  * Returns the configuration named by the {@link #CLASS_PROPERTY}
+  * system property or registered as a service provider.
+  * @return the configuration or <code>null</code> if there is none
+  * @throws IllegalArgumentException if the configuration class named
+  * by the system property cannot be instantiated
+  */
+ public static ProgrammaticConfiguration forSystemProperties()
+ {
+  final String className = System.getProperty(CLASS_PROPERTY);
+  final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+  if (null != className && 0 < className.length())
+   try
+   {
+    return Class.forName(className, true, loader)
+      .asSubclass(ProgrammaticConfiguration.class).newInstance();
+   }
+   catch (Exception e)
+   {
+    throw new IllegalArgumentException("Could not instantiate programmatic configuration "
+      + className, e);
+   }
+  final Iterator<ProgrammaticConfiguration> providers =
+    ServiceLoader.load(ProgrammaticConfiguration.class, loader).iterator();
+  return providers.hasNext() ? providers.next() : null;
+ }
+
+ /**
+  * Adds the bean definitions and aliases of this configuration
+  * to a container.
+  */
+ public synchronized void registerBeans(BeanDefinitionRegistry registry)
+ {
+  template(TEMPLATE_MAIN, Command.class).addConstructorArgValue(lazyApplicationBean());
+  try
+  {
+   configure();
+   for (Map.Entry<String, BeanDefinitionBuilder> entry : definitions.entrySet())
+    registry.registerBeanDefinition(entry.getKey(), entry.getValue().getBeanDefinition());
+   for (String[] alias : aliases)
+    registry.registerAlias(alias[0], alias[1]);
+  }
+  finally
+  {
+   definitions.clear();
+   aliases.clear();
+  }
+ }
+
+ @Override
+ public String toString()
+ {
+  return "programmatic configuration " + getClass().getName();
+ }
+
+ /**
+  * Defines the application's beans by calling the methods of
+  * this class. Beans may be defined in any order.
+  */
+ protected abstract void configure();
+
+ /**
+  * Defines a bean. If a bean with the same name has already
+  * been defined, it is replaced.
+  * @param name the name of the bean
+  * @param type the class of the bean
+  */
+ protected BeanDefinitionBuilder bean(String name, Class<?> type)
+ {
+  final BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(type);
+  definitions.put(name, builder);
+  return builder;
+ }
+
+ /**
+  * Defines an abstract bean that other beans may
+  * {@link BeanDefinitionBuilder#setParentName(String) inherit} from.
+  */
+ protected BeanDefinitionBuilder template(String name, Class<?> type)
+ {
+  return bean(name, type).setAbstract(true);
+ }
+
+ /**
+  * Defines the {@link Launcher#BEAN_NAME_MAIN main bean}.
+  */
+ protected BeanDefinitionBuilder main(Class<? extends ApplicationBean> type)
+ {
+  return bean(Launcher.BEAN_NAME_MAIN, type);
+ }
+
+ /**
+  * Defines a command entered by its long name, which inherits
+  * from {@link #TEMPLATE_MAIN}.
+  * @param name the command's name without the
+  * {@link Command#COMMAND_PREFIX}
+  */
+ protected BeanDefinitionBuilder command(String name, Class<? extends Command> type)
+ {
+  return bean(Launcher.BEAN_NAME_PREFIX_COMMAND + name, type).setParentName(TEMPLATE_MAIN);
+ }
+
+ /**
+  * Defines a command entered by its short name, which inherits
+  * from {@link #TEMPLATE_MAIN}.
+  * @param name the switch character that follows the
+  * {@link Command#SWITCH_PREFIX}
+  */
+ protected BeanDefinitionBuilder switchCommand(char name, Class<? extends Command> type)
+ {
+  return bean(Launcher.BEAN_NAME_PREFIX_SWITCH + name, type).setParentName(TEMPLATE_MAIN);
+ }
+
+ /**
+  * Defines the {@link Launcher#BEAN_NAME_DEFAULT_HANDLER handler of
+  * unclaimed arguments}, which inherits from {@link #TEMPLATE_MAIN}.
+  */
+ protected BeanDefinitionBuilder defaultHandler(Class<? extends Command> type)
+ {
+  return bean(Launcher.BEAN_NAME_DEFAULT_HANDLER, type).setParentName(TEMPLATE_MAIN);
+ }
+
+ /**
+  * Makes a bean available under another name, for instance
+  * to enter a command by a {@link Launcher#BEAN_NAME_PREFIX_SWITCH switch}
+  * as well as its long name.
+  */
+ protected void alias(String name, String alias)
+ {
+  aliases.add(new String[] { name, alias });
+ }
+
+ /**
+  * Returns a definition of a {@link LazyApplicationBean} handle to
+  * the main bean, which can be passed as a constructor argument or
+  * property value.
+  */
+ protected BeanDefinition lazyApplicationBean()
+ {
+  return BeanDefinitionBuilder.genericBeanDefinition(LazyApplicationBean.class)
+    .getBeanDefinition();
+ }
+
+ /**
+  * Defines the framework's commands, the same ones that
+  * <code>springlet/commands.xml</code> defines.
+  */
+ protected void frameworkCommands()
+ {
+  command("help", HelpCommand.class);
+  alias(Launcher.BEAN_NAME_PREFIX_COMMAND + "help", Launcher.BEAN_NAME_PREFIX_SWITCH + '?');
+  command("verbose", VerboseCommand.class);
+ }
+
+ /**
+  * Defines the framework's optional commands, the same ones that
+  * <code>springlet/extra-commands.xml</code> adds to those of
+  * {@link #frameworkCommands()}, which must also be called, and
+  * enables {@link Launcher#BEAN_NAME_ARGUMENT_FILES argument files}.
+  */
+ protected void extraFrameworkCommands()
+ {
+  bean(Launcher.BEAN_NAME_ARGUMENT_FILES, Boolean.class).addConstructorArgValue(Boolean.TRUE);
+  command("cds-train", CdsTrainCommand.class);
+  command("args-from-stdin", ArgsFromStdinCommand.class);
+  command("metrics-out", MetricsOutCommand.class);
+ }
+
+ private final Map<String, BeanDefinitionBuilder> definitions =
+   new LinkedHashMap<String, BeanDefinitionBuilder>();
+ private final List<String[]> aliases = new ArrayList<String[]>();
+}
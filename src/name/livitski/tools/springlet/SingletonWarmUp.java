@@ -0,0 +1,308 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+/**
+ * Calls {@link WarmUpBean#warmUp()} on the singletons of a container
+ * before the application runs. The beans' dependencies, as recorded by
+ * the container when it injected them, form a graph. A bean is warmed up
+ * only after all the beans it depends on, directly or through other
+ * beans, have been warmed up, which keeps the order Spring guarantees
+ * for creating the beans. Beans that do not depend on each other are
+ * warmed up concurrently on a pool of up to {@link #getParallelism()}
+ * threads. By default, there is one thread and beans are warmed up
+ * one at a time on the caller's thread, so concurrency is opt-in.
+ * Each bean is warmed up once per container, even if this class is
+ * used repeatedly. If a bean fails, the beans that depend on it are
+ * not warmed up, and the failure is re-thrown after the independent
+ * beans are done.
+ * <p>Note that Spring 3.2 creates singletons while holding a lock on
+ * the whole container, so work done in constructors and setters cannot
+ * be made concurrent by any means other than moving it to
+ * {@link WarmUpBean#warmUp()}.</p>
+ * @see #PARALLELISM_PROPERTY
+ */
+public class SingletonWarmUp extends Logging
+{
+ /**
+  * Name of the system property with the number of threads used
+  * to warm up beans. Defaults to <code>1</code>.
+  */
+ public static final String PARALLELISM_PROPERTY = "springlet.warmup.parallelism";
+
+ /**
+  * Warms up the singletons that the container has created and
+  * that have not been warmed up yet.
+  * @throws BeanInitializationException if a bean fails to warm up
+  * @throws IllegalStateException if the current thread is interrupted
+  */
+ public void warmUp(ConfigurableListableBeanFactory factory)
+ {
+  final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+  synchronized (WARMED_UP)
+  {
+   Set<String> warmedUp = WARMED_UP.get(factory);
+   if (null == warmedUp)
+    WARMED_UP.put(factory, warmedUp = new HashSet<String>());
+   for (String name : factory.getSingletonNames())
+   {
+    final Object bean = factory.getSingleton(name);
+    if (bean instanceof WarmUpBean && warmedUp.add(name))
+     nodes.put(name, new Node(name, (WarmUpBean)bean));
+   }
+  }
+  if (nodes.isEmpty())
+   return;
+  final List<Node> ready = new ArrayList<Node>();
+  for (Node node : nodes.values())
+  {
+   final Set<String> dependencies = new HashSet<String>();
+   collectDependencies(factory, node.name, nodes, dependencies, new HashSet<String>());
+   for (String dependency : dependencies)
+    nodes.get(dependency).dependents.add(node);
+   node.pending.set(dependencies.size());
+   if (dependencies.isEmpty())
+    ready.add(node);
+  }
+  checkCycles(nodes.values(), ready);
+  final int threads = Math.min(parallelism, nodes.size());
+  debug("Warming up {} bean(s) on {} thread(s)", nodes.size(), threads);
+  final Queue<Runnable> queue = new ArrayDeque<Runnable>();
+  final ExecutorService pool = 1 < threads
+    ? Executors.newFixedThreadPool(threads, THREAD_FACTORY) : null;
+  final Execution execution = new Execution(null == pool ? new Executor()
+  {
+   public void execute(Runnable task)
+   {
+    queue.add(task);
+   }
+  } : pool, nodes.size());
+  try
+  {
+   for (Node node : ready)
+    execution.submit(node);
+   for (Runnable task; null != (task = queue.poll());)
+    task.run();
+   execution.await();
+  }
+  catch (InterruptedException interrupt)
+  {
+   Thread.currentThread().interrupt();
+   throw new IllegalStateException("Interrupted while warming up beans", interrupt);
+  }
+  finally
+  {
+   if (null != pool)
+    pool.shutdownNow();
+  }
+  final RuntimeException failure = execution.failure.get();
+  if (null != failure)
+   throw failure;
+ }
+
+ public int getParallelism()
+ {
+  return parallelism;
+ }
+
+ /**
+  * Creates a warm-up with the default number of threads.
+  * @see #PARALLELISM_PROPERTY
+  */
+ public SingletonWarmUp()
+ {
+  this(Integer.getInteger(PARALLELISM_PROPERTY, 1));
+ }
+
+ /**
+  * @param parallelism maximum number of beans warmed up at the same time
+  */
+ public SingletonWarmUp(int parallelism)
+ {
+  if (0 >= parallelism)
+   throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism);
+  this.parallelism = parallelism;
+ }
+
+ /**
+  * Finds the beans being warmed up that a bean depends on, following
+  * the dependencies through beans that are not warmed up.
+  */
+ private static void collectDependencies(ConfigurableListableBeanFactory factory, String name,
+   Map<String, Node> nodes, Set<String> found, Set<String> visited)
+ {
+  for (String dependency : factory.getDependenciesForBean(name))
+   if (visited.add(dependency))
+   {
+    if (nodes.containsKey(dependency))
+     found.add(dependency);
+    else
+     collectDependencies(factory, dependency, nodes, found, visited);
+   }
+ }
+
+ /**
+  * Makes sure that every bean can be reached by walking the graph
+  * from the beans that have no dependencies.
+  * @throws IllegalStateException if some beans depend on each other
+  */
+ private static void checkCycles(Iterable<Node> nodes, List<Node> ready)
+ {
+  final Map<Node, Integer> pending = new IdentityHashMap<Node, Integer>();
+  for (Node node : nodes)
+   pending.put(node, node.pending.get());
+  final Queue<Node> queue = new ArrayDeque<Node>(ready);
+  for (Node node; null != (node = queue.poll());)
+  {
+   pending.remove(node);
+   for (Node dependent : node.dependents)
+   {
+    final int count = pending.get(dependent) - 1;
+    pending.put(dependent, count);
+    if (0 == count)
+     queue.add(dependent);
+   }
+  }
+  if (!pending.isEmpty())
+  {
+   final List<String> names = new ArrayList<String>();
+   for (Node node : pending.keySet())
+    names.add(node.name);
+   throw new IllegalStateException("Beans " + names + " depend on each other");
+  }
+ }
+
+ private static class Node
+ {
+  Node(String name, WarmUpBean bean)
+  {
+   this.name = name;
+   this.bean = bean;
+  }
+
+  final String name;
+  final WarmUpBean bean;
+  final List<Node> dependents = new ArrayList<Node>(2);
+  final AtomicInteger pending = new AtomicInteger();
+  volatile boolean blocked;
+ }
+
+ private class Execution
+ {
+  void submit(final Node node)
+  {
+   executor.execute(new Runnable()
+   {
+    public void run()
+    {
+     perform(node);
+    }
+   });
+  }
+
+  void await() throws InterruptedException
+  {
+   remaining.await();
+  }
+
+  private void perform(Node node)
+  {
+   boolean failed = node.blocked;
+   try
+   {
+    if (failed)
+     debug("Skipped warming up bean '{}' after a failure of its dependency", node.name);
+    else
+    {
+     final long start = System.nanoTime();
+     node.bean.warmUp();
+     trace("Warmed up bean '{}' in {} ns", node.name, System.nanoTime() - start);
+    }
+   }
+   catch (Throwable error)
+   {
+    failed = true;
+    failure.compareAndSet(null, new BeanInitializationException(
+      "Could not warm up bean '" + node.name + "'", error));
+   }
+   finally
+   {
+    for (Node dependent : node.dependents)
+    {
+     if (failed)
+      dependent.blocked = true;
+     if (0 == dependent.pending.decrementAndGet())
+      submit(dependent);
+    }
+    remaining.countDown();
+   }
+  }
+
+  Execution(Executor executor, int size)
+  {
+   this.executor = executor;
+   this.remaining = new CountDownLatch(size);
+  }
+
+  final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+  private final Executor executor;
+  private final CountDownLatch remaining;
+ }
+
+ /**
+  * Names of beans that have been warmed up in each container. Weak keys
+  * let the containers be collected.
+  */
+ private static final Map<ConfigurableListableBeanFactory, Set<String>> WARMED_UP =
+   new WeakHashMap<ConfigurableListableBeanFactory, Set<String>>();
+
+ private static final ThreadFactory THREAD_FACTORY = new ThreadFactory()
+ {
+  public Thread newThread(Runnable task)
+  {
+   final Thread thread = new Thread(task,
+     "springlet-warmup-" + counter.incrementAndGet());
+   thread.setDaemon(true);
+   return thread;
+  }
+
+  private final AtomicInteger counter = new AtomicInteger();
+ };
+
+ private final int parallelism;
+}
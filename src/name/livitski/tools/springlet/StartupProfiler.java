@@ -0,0 +1,348 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+
+/**
+ * Measures the time spent in phases of an application's lifecycle, such
+ * as configuring the logs, reading each configuration file, creating
+ * each bean, processing each command, warming up the beans, and
+ * running the application.
+ * Phases may be nested, e.g. the creation of a bean includes the
+ * creation of beans it depends on, so each phase is reported with its
+ * total time and its own time, which excludes the nested phases.
+ * The profiler is enabled by setting the {@link #PROFILE_PROPERTY}
+ * system property to the name of a file that will receive the
+ * JSON report. When a {@link Launcher} that has a profiler
+ * finishes its {@link Launcher#launch(String[]) launch}, the report
+ * is written and the {@link #TOP_PROPERTY slowest phases} are listed
+ * on the standard error stream.
+ */
+public class StartupProfiler extends Logging
+{
+ /**
+  * Name of the system property that enables profiling and
+  * points to the report file.
+  */
+ public static final String PROFILE_PROPERTY = "springlet.profile";
+
+ /**
+  * Name of the system property with the number of slowest phases
+  * to list on the standard error. Defaults to <code>10</code>.
+  */
+ public static final String TOP_PROPERTY = "springlet.profile.top";
+
+ /**
+  * Phase of configuring the logs.
+  */
+ public static final String PHASE_LOGGING = "logging";
+
+ /**
+  * Phase of setting up the bean container.
+  */
+ public static final String PHASE_CONTAINER = "container";
+
+ /**
+  * Phase of reading a configuration resource.
+  */
+ public static final String PHASE_RESOURCE = "resource";
+
+ /**
+  * Phase of creating a bean.
+  */
+ public static final String PHASE_BEAN = "bean";
+
+ /**
+  * Phase of processing a command-line argument.
+  */
+ public static final String PHASE_COMMAND = "command";
+
+ /**
+  * Phase of {@link SingletonWarmUp warming up} the beans.
+  */
+ public static final String PHASE_WARM_UP = "warm-up";
+
+ /**
+  * Phase of running the application bean.
+  */
+ public static final String PHASE_RUN = "run";
+
+ /**
+  * Returns a profiler configured by the
+  * {@link #PROFILE_PROPERTY system properties}.
+  * @return the profiler or <code>null</code> if profiling
+  * is disabled
+  */
+ public static StartupProfiler forSystemProperties()
+ {
+  final String path = System.getProperty(PROFILE_PROPERTY);
+  if (null == path || 0 == path.length())
+   return null;
+  final StartupProfiler profiler = new StartupProfiler(path);
+  profiler.setTop(Integer.getInteger(TOP_PROPERTY, DEFAULT_TOP));
+  return profiler;
+ }
+
+ /**
+  * Starts timing a phase on the current thread. The phase must
+  * be {@link Phase#end() ended} on the same thread.
+  * @param type the type of phase, such as {@link #PHASE_BEAN}
+  * @param name the name of a bean, resource or command the phase
+  * is about, or <code>null</code>
+  * @return the object that tracks the phase
+  */
+ public Phase begin(String type, String name)
+ {
+  final Phase phase = new Phase(type, name);
+  stack.get().addFirst(phase);
+  return phase;
+ }
+
+ /**
+  * Returns the post-processor that times bean creation. Add it
+  * to the container before beans are created.
+  */
+ public BeanPostProcessor getBeanPostProcessor()
+ {
+  return beanTimer;
+ }
+
+ /**
+  * Writes the JSON report to the file and lists the slowest phases
+  * on a stream.
+  * @param table the stream that receives the list of slowest phases
+  */
+ public void report(PrintStream table)
+ {
+  final List<Phase> phases;
+  synchronized (completed)
+  {
+   phases = new ArrayList<Phase>(completed);
+  }
+  try
+  {
+   final PrintWriter out = new PrintWriter(
+     new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8"));
+   try
+   {
+    writeJSON(phases, out);
+   }
+   finally
+   {
+    out.close();
+   }
+  }
+  catch (IOException e)
+  {
+   log().warn("Could not write the profiling report to " + reportFile, e);
+  }
+  Collections.sort(phases, new Comparator<Phase>()
+  {
+   public int compare(Phase o1, Phase o2)
+   {
+    return o1.ownNanos < o2.ownNanos ? 1 : o1.ownNanos > o2.ownNanos ? -1 : 0;
+   }
+  });
+  table.printf("%10s %10s  %-9s %s%n", "own ms", "total ms", "phase", "name");
+  for (int i = 0; phases.size() > i && top > i; i++)
+  {
+   final Phase phase = phases.get(i);
+   table.printf("%10.3f %10.3f  %-9s %s%n", phase.ownNanos / 1e6, phase.totalNanos / 1e6,
+     phase.type, null == phase.name ? "" : phase.name);
+  }
+  table.flush();
+ }
+
+ public String getReportFile()
+ {
+  return reportFile;
+ }
+
+ public int getTop()
+ {
+  return top;
+ }
+
+ public void setTop(int top)
+ {
+  this.top = top;
+ }
+
+ /**
+  * @param reportFile the path to the JSON report file
+  */
+ public StartupProfiler(String reportFile)
+ {
+  this.reportFile = reportFile;
+  this.originNanos = System.nanoTime();
+  this.uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+ }
+
+ /**
+  * A timed phase of the application's lifecycle.
+  */
+ public class Phase
+ {
+  /**
+   * Stops timing this phase. Phases that began after this phase
+   * on the same thread and have not ended are discarded.
+   */
+  public void end()
+  {
+   final long now = System.nanoTime();
+   final LinkedList<Phase> phases = stack.get();
+   if (!phases.contains(this))
+    return;
+   while (this != phases.removeFirst());
+   totalNanos = now - startNanos;
+   ownNanos = totalNanos - nestedNanos;
+   if (!phases.isEmpty())
+    phases.getFirst().nestedNanos += totalNanos;
+   synchronized (completed)
+   {
+    completed.add(this);
+   }
+  }
+
+  Phase(String type, String name)
+  {
+   this.type = type;
+   this.name = name;
+   this.thread = Thread.currentThread().getName();
+   this.startNanos = System.nanoTime();
+  }
+
+  private final String type;
+  private final String name;
+  private final String thread;
+  private final long startNanos;
+  private long nestedNanos;
+  private long totalNanos;
+  private long ownNanos;
+ }
+
+ private void writeJSON(List<Phase> phases, PrintWriter out)
+ {
+  out.print("{\"jvmUptimeAtStartMillis\":");
+  out.print(uptimeMillis);
+  out.print(",\"elapsedNanos\":");
+  out.print(System.nanoTime() - originNanos);
+  out.print(",\"phases\":[");
+  boolean first = true;
+  for (Phase phase : phases)
+  {
+   out.print(first ? "\n {" : ",\n {");
+   first = false;
+   out.print("\"type\":");
+   writeString(phase.type, out);
+   out.print(",\"name\":");
+   writeString(phase.name, out);
+   out.print(",\"thread\":");
+   writeString(phase.thread, out);
+   out.print(",\"startNanos\":");
+   out.print(phase.startNanos - originNanos);
+   out.print(",\"totalNanos\":");
+   out.print(phase.totalNanos);
+   out.print(",\"ownNanos\":");
+   out.print(phase.ownNanos);
+   out.print('}');
+  }
+  out.println("\n]}");
+ }
+
+ private static void writeString(String value, PrintWriter out)
+ {
+  if (null == value)
+  {
+   out.print("null");
+   return;
+  }
+  out.print('"');
+  for (int i = 0, length = value.length(); length > i; i++)
+  {
+   final char c = value.charAt(i);
+   if ('"' == c || '\\' == c)
+    out.print('\\');
+   if (' ' > c)
+    out.printf("\\u%04x", (int)c);
+   else
+    out.print(c);
+  }
+  out.print('"');
+ }
+
+ /**
+  * Times beans from the start of their instantiation until
+  * their initialization is complete.
+  */
+ private class BeanTimer extends InstantiationAwareBeanPostProcessorAdapter
+ {
+  @Override
+  public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName)
+    throws BeansException
+  {
+   begin(PHASE_BEAN, beanName);
+   return null;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName)
+    throws BeansException
+  {
+   final LinkedList<Phase> phases = stack.get();
+   if (!phases.isEmpty())
+   {
+    final Phase phase = phases.getFirst();
+    if (PHASE_BEAN == phase.type && beanName.equals(phase.name))
+     phase.end();
+   }
+   return bean;
+  }
+ }
+
+ private static final int DEFAULT_TOP = 10;
+
+ private final ThreadLocal<LinkedList<Phase>> stack = new ThreadLocal<LinkedList<Phase>>()
+ {
+  @Override
+  protected LinkedList<Phase> initialValue()
+  {
+   return new LinkedList<Phase>();
+  }
+ };
+ private final List<Phase> completed = new ArrayList<Phase>();
+ private final BeanTimer beanTimer = new BeanTimer();
+ private final String reportFile;
+ private final long originNanos;
+ private final long uptimeMillis;
+ private int top;
+}
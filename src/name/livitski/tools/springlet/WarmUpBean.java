@@ -0,0 +1,37 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+/**
+ * Implemented by singleton beans that have expensive preparations to
+ * make before the application runs, such as opening files, building
+ * indexes, or filling caches. Spring creates singletons one at a time,
+ * so such work done in constructors or setters adds up serially. Beans
+ * that move it to {@link #warmUp()} let the framework overlap it with
+ * the preparations of independent beans.
+ * @see SingletonWarmUp
+ */
+public interface WarmUpBean
+{
+ /**
+  * Prepares the bean for use. Called once, after the bean is
+  * configured, and after the beans it depends on have been warmed up.
+  * May be called concurrently with the warm-up of other beans.
+  * @throws Exception if the bean cannot be prepared
+  */
+ void warmUp() throws Exception;
+}
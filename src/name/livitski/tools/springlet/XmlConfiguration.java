@@ -0,0 +1,76 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.support.EncodedResource;
+
+/**
+ * Reads the application's bean definitions from
+ * {@link Launcher#MAIN_BEAN_CONFIG_FILE}. Kept apart from the
+ * {@link Launcher} so that applications with a
+ * {@link ProgrammaticConfiguration} do not load the XML parsing classes.
+ */
+class XmlConfiguration
+{
+ /**
+  * Reads the application's bean definitions from
+  * {@link Launcher#MAIN_BEAN_CONFIG_FILE} or the
+  * {@link BeanDefinitionCache definition cache}, if enabled.
+  * @param profiler the profiler that times reading of each
+  * configuration resource, or <code>null</code>
+  */
+ static void loadBeanDefinitions(DefaultListableBeanFactory beanFactory,
+   final StartupProfiler profiler)
+ {
+  final BeanDefinitionCache cache = BeanDefinitionCache.forSystemProperties();
+  if (null == cache || !cache.load(beanFactory))
+  {
+   final XmlBeanDefinitionReader xmlReader = null == profiler
+     ? new XmlBeanDefinitionReader(beanFactory)
+     : new XmlBeanDefinitionReader(beanFactory)
+   {
+    @Override
+    public int loadBeanDefinitions(EncodedResource resource)
+      throws BeanDefinitionStoreException
+    {
+     final StartupProfiler.Phase phase =
+       profiler.begin(StartupProfiler.PHASE_RESOURCE, resource.getResource().getDescription());
+     try
+     {
+      return super.loadBeanDefinitions(resource);
+     }
+     finally
+     {
+      phase.end();
+     }
+    }
+   };
+   xmlReader.setValidating(false);
+   if (null == cache)
+    xmlReader.loadBeanDefinitions(Launcher.MAIN_BEAN_CONFIG_FILE);
+   else
+    cache.loadAndStore(xmlReader, Launcher.MAIN_BEAN_CONFIG_FILE);
+  }
+ }
+
+ private XmlConfiguration()
+ {
+ }
+}
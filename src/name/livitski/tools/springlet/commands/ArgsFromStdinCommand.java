@@ -0,0 +1,67 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.commands;
+
+import java.util.ListIterator;
+
+import name.livitski.tools.springlet.ApplicationBean;
+import name.livitski.tools.springlet.ArgumentIterator;
+import name.livitski.tools.springlet.Command;
+
+/**
+ * Handles the <code>--args-from-stdin</code> command line switch.
+ * Makes the framework read more arguments from the standard input,
+ * one per line, before the arguments that follow this switch.
+ * Fails if the standard input is
+ * {@link ArgumentIterator#setStandardInputAvailable(boolean) not available}.
+ * @see ArgumentIterator
+ */
+public class ArgsFromStdinCommand extends Command
+{
+ /**
+  * @param app the application's main bean
+  */
+ public ArgsFromStdinCommand(ApplicationBean app)
+ {
+  super(app);
+ }
+
+ @Override
+ public void process(ListIterator<String> args)
+ {
+  if (!(args instanceof ArgumentIterator))
+   throw new IllegalStateException("Arguments cannot be read from the standard input"
+     + " in this context");
+  ((ArgumentIterator)args).includeStandardInput();
+ }
+
+ @Override
+ public String getArgSpec()
+ {
+  return null;
+ }
+
+ @Override
+ public String getSummary()
+ {
+  return "Reads additional arguments from the standard input, one per line."
+    + " Use this to pass more arguments than the command line can hold."
+    + " An argument @file reads arguments from a file the same way, @- is"
+    + " equivalent to this switch, and @@ stands for a literal @ at the start"
+    + " of an argument.";
+ }
+}
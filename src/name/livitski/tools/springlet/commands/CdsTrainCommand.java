@@ -0,0 +1,90 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.commands;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import name.livitski.tools.springlet.ApplicationBean;
+import name.livitski.tools.springlet.ClassDataArchive;
+import name.livitski.tools.springlet.Command;
+import name.livitski.tools.springlet.SkipApplicationRunRequest;
+
+/**
+ * Handles the <code>--cds-train</code> command line switch.
+ * Consumes the remaining arguments as a representative command line,
+ * {@link ClassDataArchive#train(String[]) trains} the application's
+ * class-data archive with it, and
+ * {@link SkipApplicationRunRequest requests the framework to quit}.
+ */
+public class CdsTrainCommand extends Command
+{
+ /**
+  * @param app the application's main bean
+  */
+ public CdsTrainCommand(ApplicationBean app)
+ {
+  super(app);
+ }
+
+ @Override
+ public void process(ListIterator<String> args)
+ {
+  final List<String> training = new ArrayList<String>();
+  while (args.hasNext())
+   training.add(args.next());
+  final ClassDataArchive archive = ClassDataArchive.forSystemProperties();
+  try
+  {
+   final int status = archive.train(training.toArray(new String[training.size()]));
+   if (0 != status)
+    log().warn("Training run exited with status " + status
+      + ", the archive may lack classes used by successful runs");
+  }
+  catch (IOException e)
+  {
+   throw new IllegalStateException("Could not train class-data archive "
+     + archive.getArchive() + ": " + e.getMessage(), e);
+  }
+  catch (InterruptedException e)
+  {
+   Thread.currentThread().interrupt();
+   throw new IllegalStateException("Interrupted while training class-data archive "
+     + archive.getArchive(), e);
+  }
+  log().info("Trained class-data archive " + archive.getArchive()
+    + ", use it by running: java @" + archive.getArgumentFile() + " run ...");
+  throw new SkipApplicationRunRequest();
+ }
+
+ @Override
+ public String getArgSpec()
+ {
+  return "[arg ...]";
+ }
+
+ @Override
+ public String getSummary()
+ {
+  return "Runs the application with the arguments that follow in a separate JVM"
+    + " to record the classes it loads into a class-data sharing archive, and exits."
+    + " Later runs start faster when the JVM is launched with the arguments file"
+    + " written next to the archive. Requires Java 10 or newer.";
+ }
+}
@@ -0,0 +1,63 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.commands;
+
+import java.io.File;
+import java.util.ListIterator;
+
+import name.livitski.tools.springlet.ApplicationBean;
+import name.livitski.tools.springlet.Command;
+import name.livitski.tools.springlet.Metrics;
+
+/**
+ * Handles the <code>--metrics-out</code> command line switch.
+ * Makes the framework write the application's {@link Metrics metrics}
+ * to a file when the application exits.
+ */
+public class MetricsOutCommand extends Command
+{
+ /**
+  * @param app the application's main bean
+  */
+ public MetricsOutCommand(ApplicationBean app)
+ {
+  super(app);
+ }
+
+ @Override
+ public void process(ListIterator<String> args)
+ {
+  final String path = fetchArgument(args);
+  if (null == path)
+   throw new IllegalArgumentException("Missing the name of the metrics file");
+  Metrics.getDefault().setOutputFile(new File(path));
+ }
+
+ @Override
+ public String getArgSpec()
+ {
+  return "file";
+ }
+
+ @Override
+ public String getSummary()
+ {
+  return "Writes the counters, gauges and latency histograms recorded by the"
+    + " application to a file when it exits. The file is written in the CSV"
+    + " format if its name ends with .csv, otherwise in JSON.";
+ }
+}
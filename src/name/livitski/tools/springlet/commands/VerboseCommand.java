@@ -61,7 +61,8 @@ public class VerboseCommand extends Command
   // null == subsystem means unspecified
   if (null == subsystem)
   {
-   final Package pkg = getApplicationBean().getClass().getPackage();
+   final Class<?> appClass = getApplicationBeanType();
+   final Package pkg = null == appClass ? null : appClass.getPackage();
    subsystem = null == pkg ? null : pkg.getName();
   }
   else if (0 == subsystem.length())
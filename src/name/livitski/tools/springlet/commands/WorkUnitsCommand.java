@@ -0,0 +1,80 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.commands;
+
+import java.util.ListIterator;
+
+import name.livitski.tools.springlet.ApplicationBean;
+import name.livitski.tools.springlet.Command;
+import name.livitski.tools.springlet.Launcher;
+import name.livitski.tools.springlet.PartitionedApplicationBean;
+
+/**
+ * Handles positional arguments of a
+ * {@link PartitionedApplicationBean partitioned application} by
+ * adding each one as a work unit of that application. Declare this
+ * command as the {@link Launcher#BEAN_NAME_DEFAULT_HANDLER default
+ * handler} of unclaimed arguments to process each of them as an
+ * independent unit. Unclaimed arguments that look like commands or
+ * switches are rejected.
+ */
+public class WorkUnitsCommand extends Command
+{
+ /**
+  * @param app the application's main bean, which must be
+  * a {@link PartitionedApplicationBean} with units of type
+  * {@link String}
+  */
+ public WorkUnitsCommand(ApplicationBean app)
+ {
+  super(app);
+ }
+
+ @SuppressWarnings("unchecked")
+ @Override
+ public void process(ListIterator<String> args)
+ {
+  final ApplicationBean app = getApplicationBean();
+  if (!(app instanceof PartitionedApplicationBean))
+   throw new IllegalStateException("Application " + app
+     + " does not accept work units from the command line");
+  final PartitionedApplicationBean<?, String> target =
+    (PartitionedApplicationBean<?, String>)app;
+  String arg = fetchArgument(args);
+  if (null == arg)
+   throw new IllegalArgumentException("Unknown command or switch: "
+     + (args.hasNext() ? args.next() : ""));
+  do
+   target.addWorkUnit(arg);
+  while (null != (arg = fetchArgument(args)));
+ }
+
+ @Override
+ public String getArgSpec()
+ {
+  return "unit ...";
+ }
+
+ @Override
+ public String getSummary()
+ {
+  return "Arguments that are not commands or switches name the units of work"
+    + " the application processes. Units are processed concurrently, up to the"
+    + " number set by the " + PartitionedApplicationBean.PARALLELISM_PROPERTY
+    + " system property at a time.";
+ }
+}
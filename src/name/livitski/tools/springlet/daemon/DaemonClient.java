@@ -0,0 +1,264 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs a Springlet application in a {@link LauncherDaemon daemon} JVM
+ * from the command line. The client sends its command line, working
+ * directory and environment to the daemon, copies the application's
+ * output to its own standard output and error streams, and exits
+ * with the application's status code. The client does not depend on
+ * any libraries, so it starts much faster than the application would.
+ * Run it as:
+ * <pre>
+ * java -D{@value #DAEMON_FILE_PROPERTY}=<em>daemon-file</em> -cp springlet.jar \
+ *  name.livitski.tools.springlet.daemon.DaemonClient <em>arguments</em>
+ * </pre>
+ * Set the {@value #STOP_PROPERTY} system property to <code>true</code>
+ * to shut the daemon down instead of running the application.
+ */
+public class DaemonClient
+{
+ /**
+  * Name of the system property with the path to the file that
+  * tells clients how to connect to the daemon. The daemon creates
+  * that file when it starts and deletes it when it stops.
+  */
+ public static final String DAEMON_FILE_PROPERTY = "springlet.daemon.file";
+
+ /**
+  * Name of the system property that makes the client stop the daemon.
+  */
+ public static final String STOP_PROPERTY = "springlet.daemon.stop";
+
+ /**
+  * Exit code of the client when it cannot communicate with the daemon.
+  * Same as the launcher's internal error code.
+  */
+ public static final int STATUS_CLIENT_ERROR = 1;
+
+ public static void main(String[] args)
+ {
+  final String path = System.getProperty(DAEMON_FILE_PROPERTY);
+  if (null == path)
+  {
+   System.err.println("Usage: java -D" + DAEMON_FILE_PROPERTY + "=daemon-file -cp {classpath} "
+     + DaemonClient.class.getName() + " [argument ...]");
+   System.exit(STATUS_CLIENT_ERROR);
+  }
+  int status;
+  try
+  {
+   final DaemonClient client = new DaemonClient(new File(path));
+   if (Boolean.getBoolean(STOP_PROPERTY))
+    status = client.stop();
+   else
+    status = client.launch(args, System.getProperty("user.dir"),
+      System.getenv(), System.out, System.err);
+  }
+  catch (IOException e)
+  {
+   System.err.println("Could not run the application via daemon at " + path + ": " + e);
+   status = STATUS_CLIENT_ERROR;
+  }
+  System.out.flush();
+  System.err.flush();
+  if (0 != status)
+   System.exit(status);
+ }
+
+ /**
+  * Runs the application in the daemon and waits for it to finish.
+  * @param args the command line
+  * @param workingDirectory the directory to report as the application's
+  * {@link Invocation#getWorkingDirectory() working directory}
+  * @param environment the variables to report as the application's
+  * {@link Invocation#getEnvironment() environment}
+  * @param out receives the application's standard output
+  * @param err receives the application's standard error
+  * @return the application's status code
+  * @throws IOException if there is an error communicating
+  * with the daemon
+  */
+ public int launch(String[] args, String workingDirectory, Map<String, String> environment,
+   OutputStream out, OutputStream err)
+   throws IOException
+ {
+  final Socket socket = connect();
+  try
+  {
+   final DataOutputStream request = new DataOutputStream(
+     new BufferedOutputStream(socket.getOutputStream()));
+   writeHeader(request, REQUEST_LAUNCH);
+   request.writeInt(args.length);
+   for (String arg : args)
+    writeString(request, arg);
+   writeString(request, workingDirectory);
+   request.writeInt(environment.size());
+   for (Map.Entry<String, String> var : environment.entrySet())
+   {
+    writeString(request, var.getKey());
+    writeString(request, var.getValue());
+   }
+   request.flush();
+   final DataInputStream response = new DataInputStream(
+     new BufferedInputStream(socket.getInputStream()));
+   for (byte[] buffer = new byte[BUFFER_SIZE];;)
+   {
+    final int type = response.read();
+    if (FRAME_STATUS == type)
+     return response.readInt();
+    final OutputStream target;
+    if (FRAME_OUT == type)
+     target = out;
+    else if (FRAME_ERR == type)
+     target = err;
+    else if (0 > type)
+     throw new IOException("Daemon closed the connection before the application finished");
+    else
+     throw new IOException("Unexpected frame type " + type + " received from the daemon");
+    int length = response.readInt();
+    while (0 < length)
+    {
+     final int chunk = Math.min(length, buffer.length);
+     response.readFully(buffer, 0, chunk);
+     target.write(buffer, 0, chunk);
+     length -= chunk;
+    }
+    target.flush();
+   }
+  }
+  finally
+  {
+   socket.close();
+  }
+ }
+
+ /**
+  * Asks the daemon to shut down.
+  * @return zero if the daemon accepted the request
+  * @throws IOException if there is an error communicating
+  * with the daemon
+  */
+ public int stop() throws IOException
+ {
+  final Socket socket = connect();
+  try
+  {
+   final DataOutputStream request = new DataOutputStream(socket.getOutputStream());
+   writeHeader(request, REQUEST_STOP);
+   request.flush();
+   final DataInputStream response = new DataInputStream(socket.getInputStream());
+   if (FRAME_STATUS != response.read())
+    throw new IOException("Daemon did not confirm the shutdown");
+   return response.readInt();
+  }
+  finally
+  {
+   socket.close();
+  }
+ }
+
+ /**
+  * @param daemonFile the file written by the daemon
+  * @see #DAEMON_FILE_PROPERTY
+  */
+ public DaemonClient(File daemonFile)
+ {
+  this.daemonFile = daemonFile;
+ }
+
+ static final int PROTOCOL_VERSION = 1;
+ static final int REQUEST_LAUNCH = 1;
+ static final int REQUEST_STOP = 2;
+ static final int FRAME_OUT = 1;
+ static final int FRAME_ERR = 2;
+ static final int FRAME_STATUS = 3;
+ static final String KEY_PORT = "port";
+ static final String KEY_TOKEN = "token";
+
+ static void writeString(DataOutputStream out, String value) throws IOException
+ {
+  final byte[] bytes = value.getBytes(UTF8);
+  out.writeInt(bytes.length);
+  out.write(bytes);
+ }
+
+ static String readString(DataInputStream in) throws IOException
+ {
+  final int length = in.readInt();
+  if (0 > length || MAX_STRING_LENGTH < length)
+   throw new IOException("Invalid string length: " + length);
+  final byte[] bytes = new byte[length];
+  in.readFully(bytes);
+  return new String(bytes, UTF8);
+ }
+
+ private Socket connect() throws IOException
+ {
+  final Properties props = new Properties();
+  final InputStream in = new FileInputStream(daemonFile);
+  try
+  {
+   props.load(in);
+  }
+  finally
+  {
+   in.close();
+  }
+  final String port = props.getProperty(KEY_PORT);
+  token = props.getProperty(KEY_TOKEN);
+  if (null == port || null == token)
+   throw new IOException("Daemon file " + daemonFile + " is incomplete");
+  try
+  {
+   return new Socket(InetAddress.getByName(null), Integer.parseInt(port));
+  }
+  catch (NumberFormatException invalid)
+  {
+   throw new IOException("Invalid port number in " + daemonFile + ": " + port);
+  }
+ }
+
+ private void writeHeader(DataOutputStream request, int type) throws IOException
+ {
+  request.writeInt(PROTOCOL_VERSION);
+  writeString(request, token);
+  request.writeByte(type);
+ }
+
+ private static final String UTF8 = "UTF-8";
+ private static final int BUFFER_SIZE = 8192;
+ private static final int MAX_STRING_LENGTH = 1 << 24;
+
+ private final File daemonFile;
+ private String token;
+}
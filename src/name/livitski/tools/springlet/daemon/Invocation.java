@@ -0,0 +1,84 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.daemon;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Describes the client's environment during an application run
+ * requested from a {@link LauncherDaemon daemon}. A daemon cannot change
+ * its JVM's working directory or environment variables, so applications
+ * that run in a daemon should use the values reported here to resolve
+ * relative file names and read their settings.
+ */
+public class Invocation
+{
+ /**
+  * Returns the invocation in progress or <code>null</code> if the
+  * application is not running in a daemon.
+  */
+ public static Invocation getCurrent()
+ {
+  return current;
+ }
+
+ /**
+  * Returns the client's working directory if the application runs
+  * in a daemon, or the JVM's working directory otherwise.
+  */
+ public static File getWorkingDirectory()
+ {
+  final Invocation invocation = current;
+  return new File(null == invocation
+    ? System.getProperty("user.dir") : invocation.workingDirectory);
+ }
+
+ /**
+  * Returns the client's environment variables if the application runs
+  * in a daemon, or the JVM's environment otherwise.
+  */
+ public static Map<String, String> getEnvironment()
+ {
+  final Invocation invocation = current;
+  return null == invocation ? System.getenv() : invocation.environment;
+ }
+
+ public String[] getArguments()
+ {
+  return arguments.clone();
+ }
+
+ Invocation(String[] arguments, String workingDirectory, Map<String, String> environment)
+ {
+  this.arguments = arguments;
+  this.workingDirectory = workingDirectory;
+  this.environment = Collections.unmodifiableMap(environment);
+ }
+
+ static void setCurrent(Invocation invocation)
+ {
+  current = invocation;
+ }
+
+ private static volatile Invocation current;
+
+ private final String[] arguments;
+ private final String workingDirectory;
+ private final Map<String, String> environment;
+}
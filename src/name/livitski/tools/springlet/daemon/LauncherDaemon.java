@@ -0,0 +1,503 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.daemon;
+
+import static name.livitski.tools.springlet.daemon.DaemonClient.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+
+import name.livitski.tools.springlet.BeanDefinitionTemplate;
+import name.livitski.tools.springlet.Launcher;
+import name.livitski.tools.springlet.Logging;
+import name.livitski.tools.springlet.ManagedLauncher;
+
+/**
+ * Keeps a JVM with a Springlet application's parsed configuration
+ * running and launches the application on behalf of
+ * {@link DaemonClient clients}. This saves the JVM startup and
+ * configuration parsing time on each run. Every run gets a
+ * {@link ManagedLauncher launcher} with a fresh bean container, so that
+ * the main bean and command beans do not keep their state between runs.
+ * The client's standard output and error receive what the application
+ * writes to {@link System#out} and {@link System#err} during its run,
+ * and the client exits with the application's
+ * {@link Launcher#getStatusCode() status code}.
+ * Since the standard streams are shared by the JVM, runs are performed
+ * one at a time, in the order clients connect. The logging configuration
+ * is re-read before each run to undo the changes made by commands such
+ * as <code>--verbose</code>. Applications that use relative file names
+ * or environment variables should obtain them from {@link Invocation}.
+ * Applications that call {@link System#exit(int)} or read their
+ * standard input cannot run in a daemon.
+ * Start the daemon as:
+ * <pre>
+ * java -D{@value DaemonClient#DAEMON_FILE_PROPERTY}=<em>daemon-file</em> \
+ *  -cp <em>application-classpath</em> name.livitski.tools.springlet.daemon.LauncherDaemon
+ * </pre>
+ * The daemon listens on a loopback interface port and writes that port
+ * along with a random access token to the daemon file, which it makes
+ * readable by the owner only. Clients must present the token with
+ * each request.
+ */
+public class LauncherDaemon extends Logging
+{
+ public static void main(String[] args)
+ {
+  final String path = System.getProperty(DAEMON_FILE_PROPERTY);
+  if (null == path || 0 < args.length)
+  {
+   System.err.println("Usage: java -D" + DAEMON_FILE_PROPERTY + "=daemon-file -cp {classpath} "
+     + LauncherDaemon.class.getName());
+   System.exit(Launcher.STATUS_COMMAND_PARSING_FAILURE);
+  }
+  final LauncherDaemon daemon = new LauncherDaemon(new File(path));
+  try
+  {
+   daemon.serve();
+  }
+  catch (Exception error)
+  {
+   daemon.log().fatal("Daemon terminated abnormally", error);
+   System.exit(Launcher.STATUS_INTERNAL_ERROR);
+  }
+ }
+
+ /**
+  * Reads the application's configuration, publishes the
+  * daemon file, and serves clients' requests until one of them
+  * asks the daemon to stop.
+  * @throws IOException if the daemon cannot accept connections
+  * or publish the daemon file
+  */
+ public void serve() throws IOException
+ {
+  installStreams();
+  final BeanDefinitionTemplate template = BeanDefinitionTemplate.load();
+  template.getCommandIndex();
+  final ServerSocket server = new ServerSocket(0, BACKLOG, InetAddress.getByName(null));
+  final BlockingQueue<Request> requests = new LinkedBlockingQueue<Request>();
+  final ExecutorService readers = Executors.newCachedThreadPool(READER_THREAD_FACTORY);
+  final Thread acceptor = new Thread("springlet-daemon-acceptor")
+  {
+   @Override
+   public void run()
+   {
+    accept(server, readers, requests);
+   }
+  };
+  acceptor.setDaemon(true);
+  try
+  {
+   publish(server.getLocalPort());
+   log().info("Daemon is listening on port " + server.getLocalPort());
+   acceptor.start();
+   while (true)
+   {
+    final Request request = requests.take();
+    try
+    {
+     if (!respond(request, template))
+      break;
+    }
+    catch (IOException error)
+    {
+     log().warn("Error serving a client request", error);
+    }
+    finally
+    {
+     request.socket.close();
+    }
+   }
+  }
+  catch (InterruptedException interrupt)
+  {
+   log().warn("Daemon interrupted");
+   Thread.currentThread().interrupt();
+  }
+  finally
+  {
+   server.close();
+   readers.shutdownNow();
+   for (Request request; null != (request = requests.poll());)
+    request.socket.close();
+   if (!daemonFile.delete())
+    log().warn("Could not delete daemon file " + daemonFile);
+  }
+  log().info("Daemon stopped");
+ }
+
+ /**
+  * @param daemonFile the file to write connection data to
+  * @see DaemonClient#DAEMON_FILE_PROPERTY
+  */
+ public LauncherDaemon(File daemonFile)
+ {
+  this.daemonFile = daemonFile;
+  final byte[] random = new byte[TOKEN_LENGTH];
+  new SecureRandom().nextBytes(random);
+  final StringBuilder token = new StringBuilder(2 * TOKEN_LENGTH);
+  for (byte b : random)
+   token.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+  this.token = token.toString();
+ }
+
+ /**
+  * Creates a launcher for an application run. The launcher
+  * must configure its bean container using the template.
+  * @param template the application's parsed configuration
+  */
+ protected ManagedLauncher createLauncher(BeanDefinitionTemplate template)
+ {
+  return new ManagedLauncher(template);
+ }
+
+ /**
+  * Restores the logging configuration that applications start with.
+  */
+ protected void resetLogging(ManagedLauncher launcher)
+ {
+  try
+  {
+   LogManager.getLogManager().readConfiguration();
+  }
+  catch (IOException e)
+  {
+   log().warn("Could not reset logging configuration", e);
+  }
+  launcher.withDefaultLogging();
+ }
+
+ /**
+  * Accepts connections and reads their requests on separate threads,
+  * so that clients that do not send a complete request do not delay
+  * the others, until the server socket is closed.
+  */
+ private void accept(ServerSocket server, ExecutorService readers,
+   final BlockingQueue<Request> requests)
+ {
+  while (!server.isClosed())
+  {
+   final Socket socket;
+   try
+   {
+    socket = server.accept();
+   }
+   catch (IOException error)
+   {
+    if (!server.isClosed())
+     log().warn("Could not accept a client connection", error);
+    continue;
+   }
+   try
+   {
+    readers.execute(new Runnable()
+    {
+     public void run()
+     {
+      Request request = null;
+      try
+      {
+       request = readRequest(socket);
+      }
+      catch (IOException error)
+      {
+       log().warn("Error reading a client request", error);
+      }
+      if (null != request)
+       requests.add(request);
+      else
+       close(socket);
+     }
+    });
+   }
+   catch (RejectedExecutionException stopped)
+   {
+    close(socket);
+   }
+  }
+ }
+
+ /**
+  * Reads and authenticates a request.
+  * @return the request or <code>null</code> if it was rejected
+  */
+ private Request readRequest(Socket socket) throws IOException
+ {
+  socket.setSoTimeout(REQUEST_TIMEOUT);
+  final DataInputStream request = new DataInputStream(
+    new BufferedInputStream(socket.getInputStream()));
+  try
+  {
+   final int version = request.readInt();
+   if (PROTOCOL_VERSION != version)
+   {
+    log().warn("Rejected a client that uses protocol version " + version);
+    return null;
+   }
+   if (!MessageDigest.isEqual(token.getBytes("UTF-8"), readString(request).getBytes("UTF-8")))
+   {
+    log().warn("Rejected a client with invalid token");
+    return null;
+   }
+   final int type = request.readUnsignedByte();
+   if (REQUEST_STOP == type)
+    return new Request(socket, null);
+   else if (REQUEST_LAUNCH != type)
+   {
+    log().warn("Rejected unknown request type " + type);
+    return null;
+   }
+   final String[] args = new String[request.readInt()];
+   for (int i = 0; args.length > i; i++)
+    args[i] = readString(request);
+   final String workingDirectory = readString(request);
+   final Map<String, String> environment = new HashMap<String, String>();
+   for (int count = request.readInt(); 0 < count; count--)
+    environment.put(readString(request), readString(request));
+   return new Request(socket, new Invocation(args, workingDirectory, environment));
+  }
+  catch (SocketTimeoutException timeout)
+  {
+   log().warn("Client did not send a complete request in time");
+   return null;
+  }
+ }
+
+ /**
+  * @return whether the daemon should keep serving requests
+  */
+ private boolean respond(Request request, BeanDefinitionTemplate template) throws IOException
+ {
+  final DataOutputStream response = new DataOutputStream(
+    new BufferedOutputStream(request.socket.getOutputStream()));
+  request.socket.setSoTimeout(0);
+  final int status = null == request.invocation ? 0
+    : launch(request.invocation, template, response);
+  response.writeByte(FRAME_STATUS);
+  response.writeInt(status);
+  response.flush();
+  return null != request.invocation;
+ }
+
+ private int launch(Invocation invocation, BeanDefinitionTemplate template,
+   DataOutputStream response)
+ {
+  final OutputStream out = new BufferedOutputStream(
+    new FrameOutputStream(response, FRAME_OUT), FRAME_BUFFER_SIZE);
+  final OutputStream err = new BufferedOutputStream(
+    new FrameOutputStream(response, FRAME_ERR), FRAME_BUFFER_SIZE);
+  final OutputStream daemonOut = outSwitch.switchTo(out);
+  final OutputStream daemonErr = errSwitch.switchTo(err);
+  Invocation.setCurrent(invocation);
+  try
+  {
+   final ManagedLauncher launcher = createLauncher(template);
+   resetLogging(launcher);
+   return launcher.launch(invocation.getArguments());
+  }
+  catch (Throwable error)
+  {
+   log().error("Application run failed", error);
+   return Launcher.STATUS_INTERNAL_ERROR;
+  }
+  finally
+  {
+   System.out.flush();
+   System.err.flush();
+   Invocation.setCurrent(null);
+   outSwitch.switchTo(daemonOut);
+   errSwitch.switchTo(daemonErr);
+  }
+ }
+
+ private void installStreams()
+ {
+  if (null == outSwitch)
+  {
+   outSwitch = new SwitchableOutputStream(System.out);
+   System.setOut(new PrintStream(outSwitch, true));
+   errSwitch = new SwitchableOutputStream(System.err);
+   System.setErr(new PrintStream(errSwitch, true));
+  }
+ }
+
+ private void publish(int port) throws IOException
+ {
+  final File dir = daemonFile.getAbsoluteFile().getParentFile();
+  if (null != dir && !dir.isDirectory() && !dir.mkdirs())
+   throw new IOException("Could not create directory " + dir);
+  Path temp;
+  try
+  {
+   temp = Files.createTempFile(dir.toPath(), daemonFile.getName() + '.', ".tmp",
+     PosixFilePermissions.asFileAttribute(EnumSet.of(
+       PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+  }
+  catch (UnsupportedOperationException notPosix)
+  {
+   // file systems without POSIX permissions create temporary files
+   // that only their owner can access
+   temp = Files.createTempFile(dir.toPath(), daemonFile.getName() + '.', ".tmp");
+  }
+  try
+  {
+   final OutputStream stream = Files.newOutputStream(temp);
+   try
+   {
+    final Properties props = new Properties();
+    props.setProperty(KEY_PORT, Integer.toString(port));
+    props.setProperty(KEY_TOKEN, token);
+    props.store(stream, "Springlet daemon, process "
+      + ManagementFactory.getRuntimeMXBean().getName());
+   }
+   finally
+   {
+    stream.close();
+   }
+   Files.move(temp, daemonFile.toPath(),
+     StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+  finally
+  {
+   Files.deleteIfExists(temp);
+  }
+  daemonFile.deleteOnExit();
+ }
+
+ private static void close(Socket socket)
+ {
+  try
+  {
+   socket.close();
+  }
+  catch (IOException ignored) {}
+ }
+
+ /**
+  * An authenticated request waiting to be served.
+  */
+ private static class Request
+ {
+  Request(Socket socket, Invocation invocation)
+  {
+   this.socket = socket;
+   this.invocation = invocation;
+  }
+
+  final Socket socket;
+  /**
+   * <code>null</code> for a request to stop the daemon
+   */
+  final Invocation invocation;
+ }
+
+ /**
+  * Sends data written to it to the client as frames of a type.
+  */
+ private static class FrameOutputStream extends OutputStream
+ {
+  @Override
+  public void write(int b) throws IOException
+  {
+   write(new byte[] { (byte)b }, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException
+  {
+   if (0 == len)
+    return;
+   synchronized (channel)
+   {
+    channel.writeByte(type);
+    channel.writeInt(len);
+    channel.write(b, off, len);
+   }
+  }
+
+  @Override
+  public void flush() throws IOException
+  {
+   synchronized (channel)
+   {
+    channel.flush();
+   }
+  }
+
+  FrameOutputStream(DataOutputStream channel, int type)
+  {
+   this.channel = channel;
+   this.type = type;
+  }
+
+  private final DataOutputStream channel;
+  private final int type;
+ }
+
+ private static final int BACKLOG = 50;
+ private static final int TOKEN_LENGTH = 16;
+ private static final int REQUEST_TIMEOUT = 10000;
+ private static final int FRAME_BUFFER_SIZE = 8192;
+
+ private static final ThreadFactory READER_THREAD_FACTORY = new ThreadFactory()
+ {
+  public Thread newThread(Runnable task)
+  {
+   final Thread thread = new Thread(task, "springlet-daemon-reader-" + counter.incrementAndGet());
+   thread.setDaemon(true);
+   return thread;
+  }
+
+  private final AtomicInteger counter = new AtomicInteger();
+ };
+
+ private static SwitchableOutputStream outSwitch, errSwitch;
+
+ private final File daemonFile;
+ private final String token;
+}
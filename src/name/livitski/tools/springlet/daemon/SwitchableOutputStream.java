@@ -0,0 +1,71 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.daemon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stream that writes to a target that can be replaced at any time.
+ * The daemon installs these streams as the JVM's standard output and
+ * error, so that anything that keeps a reference to
+ * {@link System#out} or {@link System#err}, such as a logging
+ * handler, writes to the client of the current invocation.
+ */
+class SwitchableOutputStream extends OutputStream
+{
+ @Override
+ public void write(int b) throws IOException
+ {
+  target.write(b);
+ }
+
+ @Override
+ public void write(byte[] b, int off, int len) throws IOException
+ {
+  target.write(b, off, len);
+ }
+
+ @Override
+ public void flush() throws IOException
+ {
+  target.flush();
+ }
+
+ /**
+  * Flushes the current target and replaces it.
+  * @return the former target
+  */
+ OutputStream switchTo(OutputStream target)
+ {
+  final OutputStream former = this.target;
+  try
+  {
+   former.flush();
+  }
+  catch (IOException ignored) {}
+  this.target = target;
+  return former;
+ }
+
+ SwitchableOutputStream(OutputStream target)
+ {
+  this.target = target;
+ }
+
+ private volatile OutputStream target;
+}
@@ -0,0 +1,136 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.testing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Collects the output and log records of a launch. While a capture is
+ * {@link #begin() in effect} on a thread, that thread and the threads
+ * it starts write the standard output and error to the capture, read
+ * the standard input from it, and have their log records added to it.
+ * Other threads use the JVM's standard streams as usual. The first
+ * capture replaces {@link System#out}, {@link System#err} and
+ * {@link System#in} with streams that route the data by thread, and
+ * adds a {@link CaptureHandler handler} to the root logger. These
+ * remain installed afterwards.
+ */
+class Capture
+{
+ /**
+  * Returns the capture in effect on the current thread.
+  * @return the capture or <code>null</code> if there is none
+  */
+ static Capture current()
+ {
+  return CURRENT.get();
+ }
+
+ /**
+  * Puts this capture in effect on the current thread.
+  * @return the capture that was in effect before, which must be
+  * passed to {@link #end(Capture)}
+  */
+ Capture begin()
+ {
+  install();
+  final Capture former = CURRENT.get();
+  CURRENT.set(this);
+  return former;
+ }
+
+ /**
+  * Restores the capture that was in effect on the current thread
+  * before this one.
+  */
+ void end(Capture former)
+ {
+  System.out.flush();
+  System.err.flush();
+  if (null == former)
+   CURRENT.remove();
+  else
+   CURRENT.set(former);
+ }
+
+ ByteArrayOutputStream getOut()
+ {
+  return out;
+ }
+
+ ByteArrayOutputStream getErr()
+ {
+  return err;
+ }
+
+ InputStream getIn()
+ {
+  return in;
+ }
+
+ void addRecord(LogRecord record)
+ {
+  records.add(record);
+ }
+
+ List<LogRecord> getRecords()
+ {
+  synchronized (records)
+  {
+   return new ArrayList<LogRecord>(records);
+  }
+ }
+
+ /**
+  * @param input the bytes that the launch reads from its
+  * standard input
+  */
+ Capture(byte[] input)
+ {
+  this.in = new ByteArrayInputStream(input);
+ }
+
+ private static synchronized void install()
+ {
+  if (isInstalled)
+   return;
+  // let the root logger create its console handler for the original stream
+  final Logger root = Logger.getLogger("");
+  root.getHandlers();
+  System.setOut(new PrintStream(new RoutedOutputStream(System.out, false), true));
+  System.setErr(new PrintStream(new RoutedOutputStream(System.err, true), true));
+  System.setIn(new RoutedInputStream(System.in));
+  root.addHandler(new CaptureHandler());
+  isInstalled = true;
+ }
+
+ private static final InheritableThreadLocal<Capture> CURRENT = new InheritableThreadLocal<Capture>();
+ private static boolean isInstalled;
+
+ private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+ private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+ private final InputStream in;
+ private final List<LogRecord> records = Collections.synchronizedList(new ArrayList<LogRecord>());
+}
@@ -0,0 +1,50 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.testing;
+
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Adds log records to the {@link Capture#current() capture} in effect
+ * on the thread that publishes them. Records published by threads
+ * without a capture are ignored.
+ */
+class CaptureHandler extends Handler
+{
+ @Override
+ public void publish(LogRecord record)
+ {
+  final Capture capture = Capture.current();
+  if (null != capture && isLoggable(record))
+  {
+   // the caller must be determined on the publishing thread
+   record.getSourceClassName();
+   capture.addRecord(record);
+  }
+ }
+
+ @Override
+ public void flush()
+ {
+ }
+
+ @Override
+ public void close()
+ {
+ }
+}
@@ -0,0 +1,122 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.testing;
+
+import java.nio.charset.Charset;
+
+import name.livitski.tools.springlet.BeanDefinitionTemplate;
+import name.livitski.tools.springlet.ManagedLauncher;
+
+/**
+ * Runs a Springlet application within the current JVM the way
+ * <code>run</code> would run it from a command line, and returns its
+ * {@link LaunchResult#getStatusCode() status code}, standard output and
+ * error, and log records instead of exiting. Each {@link #launch(String...)
+ * launch} gets a {@link ManagedLauncher} with a fresh bean container,
+ * and captures the data of its own thread and the threads that the
+ * application starts, so that launches can run in parallel, for instance
+ * from the tests of a multi-threaded JUnit suite. A harness may be shared
+ * by any number of threads, and all launches of a harness share the
+ * application's parsed configuration, so the files are only read once.
+ * <p>The first launch replaces the JVM's standard streams with streams
+ * that route the data by thread, and adds a log handler to the root
+ * logger. Threads without a launch in progress keep using the original
+ * streams. Launches are not isolated from changes to the global state
+ * of the JVM, such as the logging levels set by <code>--verbose</code>
+ * or system properties. Log records are only captured if they are
+ * published on a launch's thread at a level that the logging
+ * configuration allows. Output of threads that were started outside a
+ * launch, such as threads of a shared pool, goes to the original
+ * streams.</p>
+ */
+public class LaunchHarness
+{
+ /**
+  * Runs the application with a command line.
+  * @param args the command line arguments
+  * @return the results of the run
+  */
+ public LaunchResult launch(String... args)
+ {
+  return launch(new byte[0], args);
+ }
+
+ /**
+  * Runs the application with a command line and the text it
+  * reads from its standard input, such as the arguments read
+  * by <code>--args-from-stdin</code>.
+  * @param input the standard input, encoded with the platform's
+  * default charset
+  * @param args the command line arguments
+  * @return the results of the run
+  */
+ public LaunchResult launchWithInput(String input, String... args)
+ {
+  return launch(input.getBytes(Charset.defaultCharset()), args);
+ }
+
+ /**
+  * Creates a launcher for an application run. The launcher
+  * must configure its bean container using the template.
+  * @param template the application's parsed configuration
+  */
+ protected ManagedLauncher createLauncher(BeanDefinitionTemplate template)
+ {
+  return new ManagedLauncher(template);
+ }
+
+ /**
+  * Creates a harness for the application on the thread's context
+  * class path.
+  * @see BeanDefinitionTemplate#load()
+  */
+ public LaunchHarness()
+ {
+  this(BeanDefinitionTemplate.load());
+ }
+
+ /**
+  * Creates a harness for an application.
+  * @param template the application's parsed configuration
+  */
+ public LaunchHarness(BeanDefinitionTemplate template)
+ {
+  if (null == template)
+   throw new NullPointerException("Bean definition template is null");
+  this.template = template;
+ }
+
+ private LaunchResult launch(byte[] input, String[] args)
+ {
+  final Capture capture = new Capture(input);
+  final Capture former = capture.begin();
+  final ManagedLauncher launcher;
+  final int status;
+  try
+  {
+   launcher = createLauncher(template);
+   status = launcher.launch(args);
+  }
+  finally
+  {
+   capture.end(former);
+  }
+  return new LaunchResult(status, capture, launcher);
+ }
+
+ private final BeanDefinitionTemplate template;
+}
@@ -0,0 +1,99 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.testing;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.LogRecord;
+
+import name.livitski.tools.springlet.ManagedLauncher;
+
+/**
+ * Outcome of an application run by a {@link LaunchHarness}.
+ */
+public class LaunchResult
+{
+ /**
+  * Returns the code the application would have exited with.
+  * @see name.livitski.tools.springlet.Launcher#getStatusCode()
+  */
+ public int getStatusCode()
+ {
+  return statusCode;
+ }
+
+ /**
+  * Returns what the application wrote to its standard output,
+  * decoded with the platform's default charset.
+  */
+ public String getOut()
+ {
+  return out;
+ }
+
+ /**
+  * Returns what the application wrote to its standard error,
+  * decoded with the platform's default charset.
+  */
+ public String getErr()
+ {
+  return err;
+ }
+
+ /**
+  * Returns the log records published during the run, in the
+  * order they were published.
+  */
+ public List<LogRecord> getLogRecords()
+ {
+  return logRecords;
+ }
+
+ /**
+  * Returns the launcher that ran the application, which gives
+  * access to the beans in its container.
+  */
+ public ManagedLauncher getLauncher()
+ {
+  return launcher;
+ }
+
+ @Override
+ public String toString()
+ {
+  return "launch with status " + statusCode + ", " + out.length()
+    + " character(s) of output, " + err.length() + " character(s) of errors, "
+    + logRecords.size() + " log record(s)";
+ }
+
+ LaunchResult(int statusCode, Capture capture, ManagedLauncher launcher)
+ {
+  final Charset charset = Charset.defaultCharset();
+  this.statusCode = statusCode;
+  this.out = new String(capture.getOut().toByteArray(), charset);
+  this.err = new String(capture.getErr().toByteArray(), charset);
+  this.logRecords = Collections.unmodifiableList(capture.getRecords());
+  this.launcher = launcher;
+ }
+
+ private final int statusCode;
+ private final String out;
+ private final String err;
+ private final List<LogRecord> logRecords;
+ private final ManagedLauncher launcher;
+}
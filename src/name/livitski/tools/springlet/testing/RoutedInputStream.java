@@ -0,0 +1,59 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.testing;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Standard input stream that reads from the
+ * {@link Capture#current() capture} in effect on the reading
+ * thread, or from the JVM's original stream if there is none.
+ */
+class RoutedInputStream extends InputStream
+{
+ @Override
+ public int read() throws IOException
+ {
+  return source().read();
+ }
+
+ @Override
+ public int read(byte[] b, int off, int len) throws IOException
+ {
+  return source().read(b, off, len);
+ }
+
+ @Override
+ public int available() throws IOException
+ {
+  return source().available();
+ }
+
+ RoutedInputStream(InputStream original)
+ {
+  this.original = original;
+ }
+
+ private InputStream source()
+ {
+  final Capture capture = Capture.current();
+  return null == capture ? original : capture.getIn();
+ }
+
+ private final InputStream original;
+}
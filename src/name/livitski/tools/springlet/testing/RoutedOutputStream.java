@@ -0,0 +1,63 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.testing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Standard output or error stream that writes to the
+ * {@link Capture#current() capture} in effect on the writing
+ * thread, or to the JVM's original stream if there is none.
+ */
+class RoutedOutputStream extends OutputStream
+{
+ @Override
+ public void write(int b) throws IOException
+ {
+  target().write(b);
+ }
+
+ @Override
+ public void write(byte[] b, int off, int len) throws IOException
+ {
+  target().write(b, off, len);
+ }
+
+ @Override
+ public void flush() throws IOException
+ {
+  target().flush();
+ }
+
+ RoutedOutputStream(OutputStream original, boolean isError)
+ {
+  this.original = original;
+  this.isError = isError;
+ }
+
+ private OutputStream target()
+ {
+  final Capture capture = Capture.current();
+  if (null == capture)
+   return original;
+  return isError ? capture.getErr() : capture.getOut();
+ }
+
+ private final OutputStream original;
+ private final boolean isError;
+}
@@ -15,6 +15,9 @@
  *    limitations under the License.
  */
 
+import java.io.IOException;
+
+import name.livitski.tools.springlet.BatchLauncher;
 import name.livitski.tools.springlet.Launcher;
 
 /**
@@ -27,18 +30,28 @@ public class run
 {
  /**
   * Creates an instance of the Springlet framework and delegates the
-  * application's launch to it.
+  * application's launch to it. When a
+  * {@link BatchLauncher#BATCH_FILE_PROPERTY batch} is requested,
+  * runs the application for each line of that batch instead.
   * @see Launcher
+  * @see BatchLauncher
   */
  public static void main(String[] args)
  {
-  Launcher launcher = new Launcher().withArguments(args);
-  int status = launcher.getStatusCode();
-  if (0 == status)
-  {
-   launcher.run();
-   status = launcher.getStatusCode();
-  }
+  final BatchLauncher batch = BatchLauncher.forSystemProperties();
+  int status;
+  if (null == batch)
+   status = new Launcher().launch(args);
+  else
+   try
+   {
+    status = batch.launch(args);
+   }
+   catch (IOException e)
+   {
+    System.err.println("Could not run batch " + batch.getBatch() + ": " + e);
+    status = Launcher.STATUS_INTERNAL_ERROR;
+   }
   if (0 != status)
    System.exit(status);
  }
@@ -0,0 +1,109 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+public class AbstractApplicationBeanTest
+{
+ @Test
+ public void statusOfFailedLeafReachesRoot()
+ {
+  final Node leaf = new Node();
+  leaf.setFails(true);
+  final Node middle = new Node();
+  middle.setDependency(leaf);
+  final Node root = new Node();
+  root.setDependency(middle);
+  assertEquals(0, root.getStatusCode());
+  root.run();
+  assertEquals(2 + 2 + Status.FAILED.ordinal(), root.getStatusCode());
+ }
+
+ @Test
+ public void launcherReportsStatusOfFailedLeaf()
+ {
+  final DefaultListableBeanFactory definitions = new DefaultListableBeanFactory();
+  definitions.registerBeanDefinition("leaf", BeanDefinitionBuilder
+    .genericBeanDefinition(Node.class).addPropertyValue("fails", true).getBeanDefinition());
+  definitions.registerBeanDefinition("middle", BeanDefinitionBuilder
+    .genericBeanDefinition(Node.class).addPropertyReference("dependency", "leaf")
+    .getBeanDefinition());
+  definitions.registerBeanDefinition(Launcher.BEAN_NAME_MAIN, BeanDefinitionBuilder
+    .genericBeanDefinition(Node.class).addPropertyReference("dependency", "middle")
+    .getBeanDefinition());
+  final ManagedLauncher launcher = new ManagedLauncher(new BeanDefinitionTemplate(definitions));
+  assertEquals(Launcher.RESERVED_EXITCODE_MAX + 2 + 2 + Status.FAILED.ordinal(),
+    launcher.launch(new String[0]));
+ }
+
+ public enum Status
+ {
+  OK, FAILED
+ }
+
+ /**
+  * Runs its dependencies directly, rather than through
+  * {@link AbstractApplicationBean#runDependencies()}.
+  */
+ public static class Node extends AbstractApplicationBean<Status>
+ {
+  @Override
+  public void run()
+  {
+   if (null != dependency)
+    dependency.run();
+   if (fails)
+    status = Status.FAILED;
+  }
+
+  @Override
+  public Status getLocalStatus()
+  {
+   return status;
+  }
+
+  @Override
+  public ApplicationBean[] getDependencies()
+  {
+   return null == dependency ? new ApplicationBean[0] : new ApplicationBean[] { dependency };
+  }
+
+  public void setFails(boolean fails)
+  {
+   this.fails = fails;
+  }
+
+  public void setDependency(Node dependency)
+  {
+   this.dependency = dependency;
+  }
+
+  public Node()
+  {
+   super(Status.OK);
+  }
+
+  private boolean fails;
+  private Node dependency;
+  private Status status;
+ }
+}
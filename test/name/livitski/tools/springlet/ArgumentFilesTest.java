@@ -0,0 +1,126 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.junit.Test;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+public class ArgumentFilesTest
+{
+ @Test
+ public void argumentsStartingWithPrefixAreLiteralByDefault()
+ {
+  assertEquals(Arrays.asList("@user", "@@", "@-"), launch(false, "@user", "@@", "@-"));
+ }
+
+ @Test
+ public void argumentFilesAreExpandedWhenEnabled() throws IOException
+ {
+  final File file = File.createTempFile("args", ".txt");
+  try
+  {
+   Files.write(file.toPath(), Arrays.asList("first", "second"), Charset.defaultCharset());
+   assertEquals(Arrays.asList("first", "second", "@literal"),
+     launch(true, "@" + file.getPath(), "@@literal"));
+  }
+  finally
+  {
+   file.delete();
+  }
+ }
+
+ private static List<String> launch(boolean argumentFiles, String... args)
+ {
+  final DefaultListableBeanFactory definitions = new DefaultListableBeanFactory();
+  definitions.registerBeanDefinition(Launcher.BEAN_NAME_MAIN,
+    BeanDefinitionBuilder.genericBeanDefinition(Main.class).getBeanDefinition());
+  definitions.registerBeanDefinition(Launcher.BEAN_NAME_DEFAULT_HANDLER,
+    BeanDefinitionBuilder.genericBeanDefinition(Collect.class)
+    .addConstructorArgReference(Launcher.BEAN_NAME_MAIN).getBeanDefinition());
+  if (argumentFiles)
+   definitions.registerBeanDefinition(Launcher.BEAN_NAME_ARGUMENT_FILES,
+     BeanDefinitionBuilder.genericBeanDefinition(Boolean.class)
+     .addConstructorArgValue(Boolean.TRUE).getBeanDefinition());
+  final ManagedLauncher launcher = new ManagedLauncher(new BeanDefinitionTemplate(definitions));
+  assertEquals(0, launcher.launch(args));
+  return ((Main)launcher.getApplicationBean()).args;
+ }
+
+ public static class Main extends AbstractApplicationBean<Main.Status>
+ {
+  public enum Status
+  {
+   OK
+  }
+
+  @Override
+  public void run()
+  {
+  }
+
+  @Override
+  public Status getLocalStatus()
+  {
+   return Status.OK;
+  }
+
+  public Main()
+  {
+   super(Status.OK);
+  }
+
+  final List<String> args = new ArrayList<String>();
+ }
+
+ public static class Collect extends Command
+ {
+  @Override
+  public void process(ListIterator<String> args)
+  {
+   ((Main)getApplicationBean()).args.add(args.next());
+  }
+
+  @Override
+  public String getArgSpec()
+  {
+   return "arg";
+  }
+
+  @Override
+  public String getSummary()
+  {
+   return "Collects an argument.";
+  }
+
+  public Collect(ApplicationBean applicationBean)
+  {
+   super(applicationBean);
+  }
+ }
+}
@@ -0,0 +1,60 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ArgumentIteratorTest
+{
+ @Test(expected = ArgumentIterator.ArgumentFileException.class)
+ public void rejectsStandardInputWhenUnavailable()
+ {
+  final ArgumentIterator args = new ArgumentIterator(
+    Arrays.asList("--a", ArgumentIterator.STDIN_ARGUMENT, "--b").iterator());
+  args.setStandardInputAvailable(false);
+  assertEquals("--a", args.next());
+  args.next();
+ }
+
+ @Test
+ public void returnsArgumentsAsTheyAreWithoutArgumentFiles()
+ {
+  final ArgumentIterator args = new ArgumentIterator(
+    Arrays.asList("@nonexistent", "@@", "@-").iterator());
+  args.setArgumentFiles(false);
+  assertEquals("@nonexistent", args.next());
+  assertEquals("@@", args.next());
+  assertEquals("@-", args.next());
+  assertFalse(args.hasNext());
+ }
+
+ @Test
+ public void unescapesLiteralPrefix()
+ {
+  final ArgumentIterator args = new ArgumentIterator(
+    Arrays.asList("@@-", "@").iterator());
+  args.setStandardInputAvailable(false);
+  assertEquals("@-", args.next());
+  assertEquals("@", args.next());
+  assertFalse(args.hasNext());
+ }
+}
@@ -0,0 +1,185 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+public class AsyncCommandTest
+{
+ @Test
+ public void reportsActionFailures()
+ {
+  assertEquals(0, launch("--load", "ok", "--load", "ok"));
+  assertEquals(Launcher.STATUS_COMMAND_PARSING_FAILURE, launch("--load", "invalid"));
+  assertEquals(Launcher.RESERVED_EXITCODE_MAX + Status.LOAD_FAILED.ordinal(),
+    launch("--load", "ok", "--load", "failing"));
+ }
+
+ @Test
+ public void firstFailureByPositionDeterminesStatus()
+ {
+  assertEquals(Launcher.RESERVED_EXITCODE_MAX + Status.LOAD_FAILED.ordinal(),
+    launch("--load", "failing", "--load", "invalid"));
+  assertEquals(Launcher.STATUS_COMMAND_PARSING_FAILURE,
+    launch("--load", "invalid", "--load", "failing"));
+  assertEquals(Launcher.RESERVED_EXITCODE_MAX + Status.LOAD_FAILED.ordinal(),
+    launch("--load", "failing", "--skip"));
+  assertEquals(Launcher.STATUS_COMMAND_PARSING_FAILURE,
+    launch("--load", "invalid", "--skip"));
+  assertEquals(Launcher.STATUS_RUN_SKIPPED, launch("--load", "ok", "--skip"));
+ }
+
+ @Test
+ public void actionFailureTakesPrecedenceOverLaterUnknownArgument()
+ {
+  assertEquals(Launcher.RESERVED_EXITCODE_MAX + Status.LOAD_FAILED.ordinal(),
+    launch("--load", "failing", "unknown"));
+  assertEquals(Launcher.RESERVED_EXITCODE_MAX + Status.LOAD_FAILED.ordinal(),
+    launch("--load", "failing", "--unknown"));
+  assertEquals(Launcher.STATUS_COMMAND_PARSING_FAILURE,
+    launch("--load", "ok", "unknown"));
+ }
+
+ private static int launch(String... args)
+ {
+  return new ManagedLauncher(TEMPLATE).launch(args);
+ }
+
+ private static BeanDefinitionTemplate template()
+ {
+  final DefaultListableBeanFactory definitions = new DefaultListableBeanFactory();
+  definitions.registerBeanDefinition(Launcher.BEAN_NAME_MAIN,
+    BeanDefinitionBuilder.genericBeanDefinition(Main.class).getBeanDefinition());
+  for (Class<?> type : new Class<?>[] { Load.class, Skip.class })
+   definitions.registerBeanDefinition(Launcher.BEAN_NAME_PREFIX_COMMAND
+     + type.getSimpleName().toLowerCase(),
+     BeanDefinitionBuilder.genericBeanDefinition(type).addConstructorArgValue(
+       BeanDefinitionBuilder.genericBeanDefinition(LazyApplicationBean.class)
+       .getBeanDefinition()).getBeanDefinition());
+  return new BeanDefinitionTemplate(definitions);
+ }
+
+ public enum Status
+ {
+  OK, LOAD_FAILED
+ }
+
+ public static class Main extends AbstractApplicationBean<Status>
+ {
+  @Override
+  public void run()
+  {
+  }
+
+  @Override
+  public Status getLocalStatus()
+  {
+   return status;
+  }
+
+  @Override
+  public void updateStatus(ApplicationBeanException ex)
+  {
+   status = Status.LOAD_FAILED;
+  }
+
+  public Main()
+  {
+   super(Status.OK);
+  }
+
+  private volatile Status status;
+ }
+
+ /**
+  * Takes a while to load an argument, then fails with an
+  * {@link ApplicationBeanException} if it is <code>failing</code>,
+  * or a runtime exception if it is <code>invalid</code>.
+  */
+ public static class Load extends AsyncCommand
+ {
+  @Override
+  public Callable<?> parse(ListIterator<String> args)
+  {
+   final String arg = args.next();
+   return new Callable<Void>()
+   {
+    public Void call() throws Exception
+    {
+     Thread.sleep(100);
+     if ("failing".equals(arg))
+      throw new ApplicationBeanException(getApplicationBean(), "Could not load " + arg) {};
+     else if ("invalid".equals(arg))
+      throw new IllegalArgumentException("Invalid argument " + arg);
+     return null;
+    }
+   };
+  }
+
+  @Override
+  public String getArgSpec()
+  {
+   return "arg";
+  }
+
+  @Override
+  public String getSummary()
+  {
+   return "Loads an argument.";
+  }
+
+  public Load(ApplicationBean applicationBean)
+  {
+   super(applicationBean);
+  }
+ }
+
+ public static class Skip extends Command
+ {
+  @Override
+  public void process(ListIterator<String> args)
+  {
+   throw new SkipApplicationRunRequest();
+  }
+
+  @Override
+  public String getArgSpec()
+  {
+   return "";
+  }
+
+  @Override
+  public String getSummary()
+  {
+   return "Skips the run.";
+  }
+
+  public Skip(ApplicationBean applicationBean)
+  {
+   super(applicationBean);
+  }
+ }
+
+ private static final BeanDefinitionTemplate TEMPLATE = template();
+}
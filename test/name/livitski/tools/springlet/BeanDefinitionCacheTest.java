@@ -0,0 +1,355 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.LookupOverride;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+public class BeanDefinitionCacheTest
+{
+ @Test
+ public void concurrentStoresLeaveReadableCache() throws Exception
+ {
+  final DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+  registry.registerBeanDefinition("bean", BeanDefinitionBuilder
+    .genericBeanDefinition(Object.class).getBeanDefinition());
+  final File file = new File(dir, "definitions.cache");
+  final ExecutorService pool = Executors.newFixedThreadPool(8);
+  try
+  {
+   final Future<?>[] stores = new Future<?>[32];
+   for (int i = 0; stores.length > i; i++)
+    stores[i] = pool.submit(new Runnable()
+    {
+     public void run()
+     {
+      new BeanDefinitionCache(file).store(registry,
+        Collections.<Resource>singleton(new FileSystemResource(config)));
+     }
+    });
+   for (Future<?> store : stores)
+    store.get();
+  }
+  finally
+  {
+   pool.shutdown();
+  }
+  final DefaultListableBeanFactory loaded = new DefaultListableBeanFactory();
+  assertTrue(new BeanDefinitionCache(file).load(loaded));
+  assertArrayEquals(new String[] { "bean" }, loaded.getBeanDefinitionNames());
+  final String[] files = dir.list();
+  Arrays.sort(files);
+  assertArrayEquals(new String[] { config.getName(), file.getName() }, files);
+ }
+
+ @Test
+ public void storedDefinitionsLoadBack() throws IOException
+ {
+  writeConfig(DEFINITIONS);
+  final DefaultListableBeanFactory parsed = parse();
+  store(parsed);
+  final DefaultListableBeanFactory loaded = new DefaultListableBeanFactory();
+  assertTrue(cache().load(loaded));
+  final String[] names = parsed.getBeanDefinitionNames();
+  assertArrayEquals(names, loaded.getBeanDefinitionNames());
+  for (String name : names)
+  {
+   assertEquals(name, parsed.getBeanDefinition(name), loaded.getBeanDefinition(name));
+   assertArrayEquals(name, parsed.getAliases(name), loaded.getAliases(name));
+  }
+  final Node child = loaded.getBean("alias", Node.class);
+  assertEquals("child", child.getName());
+  assertEquals("parent", child.getLabel());
+  assertEquals("inner", child.getNext().getName());
+  assertEquals(Arrays.asList("a", "b"), child.getList());
+  assertEquals(Collections.singleton("s"), child.getSet());
+  assertEquals("other", child.getMap().get("k").getName());
+  assertEquals("v", child.getProperties().getProperty("p"));
+ }
+
+ @Test
+ public void changedResourceInvalidatesCache() throws IOException
+ {
+  writeConfig(DEFINITIONS);
+  store(parse());
+  writeConfig(DEFINITIONS + " ");
+  assertFalse(cache().load(new DefaultListableBeanFactory()));
+ }
+
+ @Test
+ public void changedChecksumInvalidatesCache() throws IOException
+ {
+  writeConfig(DEFINITIONS.replace("'child'", "'chalk'"));
+  store(parse());
+  writeConfig(DEFINITIONS);
+  assertFalse(cache().load(new DefaultListableBeanFactory()));
+ }
+
+ @Test
+ public void changedClasspathInvalidatesCache() throws IOException
+ {
+  writeConfig(DEFINITIONS);
+  store(parse());
+  final String classpath = System.getProperty("java.class.path");
+  System.setProperty("java.class.path", classpath + File.pathSeparator + dir);
+  try
+  {
+   assertFalse(cache().load(new DefaultListableBeanFactory()));
+  }
+  finally
+  {
+   System.setProperty("java.class.path", classpath);
+  }
+  assertTrue(cache().load(new DefaultListableBeanFactory()));
+ }
+
+ @Test
+ public void unsupportedFeaturesAreNotCached()
+ {
+  final AbstractBeanDefinition qualified = BeanDefinitionBuilder
+    .genericBeanDefinition(Node.class).getBeanDefinition();
+  qualified.addQualifier(new AutowireCandidateQualifier(String.class, "q"));
+  assertNotCached(qualified, "qualifiers");
+  final AbstractBeanDefinition overridden = BeanDefinitionBuilder
+    .genericBeanDefinition(Node.class).getBeanDefinition();
+  overridden.getMethodOverrides().addOverride(new LookupOverride("getNext", "next"));
+  assertNotCached(overridden, "method overrides");
+  final AbstractBeanDefinition attributed = BeanDefinitionBuilder
+    .genericBeanDefinition(Node.class).getBeanDefinition();
+  attributed.setAttribute("key", "value");
+  assertNotCached(attributed, "metadata attributes");
+ }
+
+ private void assertNotCached(BeanDefinition definition, String feature)
+ {
+  final DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+  registry.registerBeanDefinition("bean", definition);
+  final List<String> messages = new ArrayList<String>();
+  final Logger logger = Logger.getLogger(BeanDefinitionCache.class.getName());
+  final Handler handler = new Handler()
+  {
+   @Override
+   public void publish(LogRecord record)
+   {
+    messages.add(record.getMessage());
+   }
+
+   @Override
+   public void flush()
+   {
+   }
+
+   @Override
+   public void close()
+   {
+   }
+  };
+  final Level level = logger.getLevel();
+  logger.setLevel(Level.INFO);
+  logger.addHandler(handler);
+  try
+  {
+   store(registry);
+  }
+  finally
+  {
+   logger.removeHandler(handler);
+   logger.setLevel(level);
+  }
+  assertEquals(Collections.singletonList(
+    "Bean definitions cannot be cached: bean 'bean' uses " + feature), messages);
+  assertArrayEquals(new String[] { config.getName() }, dir.list());
+ }
+
+ private DefaultListableBeanFactory parse()
+ {
+  final DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+  new XmlBeanDefinitionReader(registry).loadBeanDefinitions(new FileSystemResource(config));
+  return registry;
+ }
+
+ private void store(DefaultListableBeanFactory registry)
+ {
+  cache().store(registry, Collections.<Resource>singleton(new FileSystemResource(config)));
+ }
+
+ private BeanDefinitionCache cache()
+ {
+  return new BeanDefinitionCache(new File(dir, "definitions.cache"));
+ }
+
+ private void writeConfig(String content) throws IOException
+ {
+  final FileOutputStream out = new FileOutputStream(config);
+  out.write(content.getBytes("UTF-8"));
+  out.close();
+ }
+
+ @Before
+ public void setUp() throws IOException
+ {
+  dir = File.createTempFile("springlet-test", "");
+  if (!dir.delete() || !dir.mkdir())
+   throw new IOException("Could not create directory " + dir);
+  config = new File(dir, "config.xml");
+  writeConfig("<beans/>");
+ }
+
+ @After
+ public void tearDown()
+ {
+  for (File file : dir.listFiles())
+   file.delete();
+  dir.delete();
+ }
+
+ public static class Node
+ {
+  public String getName()
+  {
+   return name;
+  }
+
+  public String getLabel()
+  {
+   return label;
+  }
+
+  public void setLabel(String label)
+  {
+   this.label = label;
+  }
+
+  public Node getNext()
+  {
+   return next;
+  }
+
+  public void setNext(Node next)
+  {
+   this.next = next;
+  }
+
+  public List<String> getList()
+  {
+   return list;
+  }
+
+  public void setList(List<String> list)
+  {
+   this.list = list;
+  }
+
+  public Set<String> getSet()
+  {
+   return set;
+  }
+
+  public void setSet(Set<String> set)
+  {
+   this.set = set;
+  }
+
+  public Map<String, Node> getMap()
+  {
+   return map;
+  }
+
+  public void setMap(Map<String, Node> map)
+  {
+   this.map = map;
+  }
+
+  public Properties getProperties()
+  {
+   return properties;
+  }
+
+  public void setProperties(Properties properties)
+  {
+   this.properties = properties;
+  }
+
+  public Node(String name)
+  {
+   this.name = name;
+  }
+
+  private final String name;
+  private String label;
+  private Node next;
+  private List<String> list;
+  private Set<String> set;
+  private Map<String, Node> map;
+  private Properties properties;
+ }
+
+ private static final String NODE = Node.class.getName();
+ private static final String DEFINITIONS = "<beans xmlns='http://www.springframework.org/schema/beans'"
+   + " xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'"
+   + " xsi:schemaLocation='http://www.springframework.org/schema/beans"
+   + " http://www.springframework.org/schema/beans/spring-beans-3.2.xsd'>"
+   + "<bean id='template' class='" + NODE + "' abstract='true'>"
+   + "<property name='label' value='parent'/></bean>"
+   + "<bean id='node' parent='template'>"
+   + "<constructor-arg value='child'/>"
+   + "<property name='next'><bean class='" + NODE + "'><constructor-arg value='inner'/></bean></property>"
+   + "<property name='list'><list><value>a</value><value>b</value></list></property>"
+   + "<property name='set'><set><value>s</value></set></property>"
+   + "<property name='map'><map><entry key='k' value-ref='other'/></map></property>"
+   + "<property name='properties'><props><prop key='p'>v</prop></props></property>"
+   + "</bean>"
+   + "<bean id='other' class='" + NODE + "'><constructor-arg value='other'/></bean>"
+   + "<alias name='node' alias='alias'/>"
+   + "</beans>";
+
+ private File dir;
+ private File config;
+}
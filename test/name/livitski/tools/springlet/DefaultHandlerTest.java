@@ -0,0 +1,108 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ListIterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+public class DefaultHandlerTest
+{
+ @Test
+ public void singletonHandlerIsReused()
+ {
+  assertEquals(1, launch(BeanDefinition.SCOPE_SINGLETON, "a", "b", "c"));
+ }
+
+ @Test
+ public void prototypeHandlerIsObtainedForEachArgument()
+ {
+  assertEquals(3, launch(BeanDefinition.SCOPE_PROTOTYPE, "a", "b", "c"));
+ }
+
+ private static int launch(String scope, String... args)
+ {
+  final DefaultListableBeanFactory definitions = new DefaultListableBeanFactory();
+  definitions.registerBeanDefinition(Launcher.BEAN_NAME_MAIN,
+    BeanDefinitionBuilder.genericBeanDefinition(Main.class).getBeanDefinition());
+  definitions.registerBeanDefinition(Launcher.BEAN_NAME_DEFAULT_HANDLER,
+    BeanDefinitionBuilder.genericBeanDefinition(Handler.class).setScope(scope)
+    .addConstructorArgReference(Launcher.BEAN_NAME_MAIN).getBeanDefinition());
+  final int instances = Handler.instances.get();
+  assertEquals(0, new ManagedLauncher(new BeanDefinitionTemplate(definitions)).launch(args));
+  return Handler.instances.get() - instances;
+ }
+
+ public static class Main extends AbstractApplicationBean<Main.Status>
+ {
+  @Override
+  public void run()
+  {
+  }
+
+  @Override
+  public Status getLocalStatus()
+  {
+   return Status.OK;
+  }
+
+  public Main()
+  {
+   super(Status.OK);
+  }
+
+  public enum Status
+  {
+   OK
+  }
+ }
+
+ public static class Handler extends Command
+ {
+  @Override
+  public void process(ListIterator<String> args)
+  {
+   args.next();
+  }
+
+  @Override
+  public String getArgSpec()
+  {
+   return "arg";
+  }
+
+  @Override
+  public String getSummary()
+  {
+   return "Consumes an argument.";
+  }
+
+  public Handler(ApplicationBean applicationBean)
+  {
+   super(applicationBean);
+   instances.incrementAndGet();
+  }
+
+  static final AtomicInteger instances = new AtomicInteger();
+ }
+}
@@ -0,0 +1,89 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class DependencyExecutorTest
+{
+ @Test(timeout = 10000)
+ public void errorOfDependencyIsRethrown()
+ {
+  final AssertionError error = new AssertionError("broken");
+  final Bean failing = new Bean(error);
+  final Bean dependent = new Bean(null, failing);
+  final Bean independent = new Bean(null);
+  final Bean root = new Bean(null, dependent, independent);
+  try
+  {
+   new DependencyExecutor(2).runDependencies(root);
+   fail("Error of a dependency was not re-thrown");
+  }
+  catch (AssertionError thrown)
+  {
+   assertSame(error, thrown);
+  }
+  assertTrue(failing.ran);
+  assertFalse(dependent.ran);
+  assertTrue(independent.ran);
+  assertFalse(root.ran);
+ }
+
+ public enum Status
+ {
+  OK
+ }
+
+ private static class Bean extends AbstractApplicationBean<Status>
+ {
+  @Override
+  public void run()
+  {
+   ran = true;
+   if (null != error)
+    throw error;
+  }
+
+  @Override
+  public Status getLocalStatus()
+  {
+   return Status.OK;
+  }
+
+  @Override
+  public ApplicationBean[] getDependencies()
+  {
+   return dependencies;
+  }
+
+  Bean(Error error, ApplicationBean... dependencies)
+  {
+   super(Status.OK);
+   this.error = error;
+   this.dependencies = dependencies;
+  }
+
+  volatile boolean ran;
+  private final Error error;
+  private final ApplicationBean[] dependencies;
+ }
+}
@@ -0,0 +1,83 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+public class LoggingTest
+{
+ @Test
+ public void recordsCallerLocation()
+ {
+  final Logger jdkLogger = Logger.getLogger(Caller.class.getName());
+  final List<LogRecord> records = new ArrayList<LogRecord>();
+  final Handler handler = new Handler()
+  {
+   @Override
+   public void publish(LogRecord record)
+   {
+    record.getSourceClassName();
+    records.add(record);
+   }
+
+   @Override
+   public void flush()
+   {
+   }
+
+   @Override
+   public void close()
+   {
+   }
+  };
+  final Level level = jdkLogger.getLevel();
+  jdkLogger.setLevel(Level.INFO);
+  jdkLogger.addHandler(handler);
+  try
+  {
+   new Caller().logSomething();
+  }
+  finally
+  {
+   jdkLogger.removeHandler(handler);
+   jdkLogger.setLevel(level);
+  }
+  assertEquals(1, records.size());
+  final LogRecord record = records.get(0);
+  assertEquals("Message 1", record.getMessage());
+  assertEquals(Caller.class.getName(), record.getLoggerName());
+  assertEquals(Caller.class.getName(), record.getSourceClassName());
+  assertEquals("logSomething", record.getSourceMethodName());
+ }
+
+ public static class Caller extends Logging
+ {
+  void logSomething()
+  {
+   info("Message {}", 1);
+  }
+ }
+}
@@ -0,0 +1,119 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class PartitionedApplicationBeanTest
+{
+ @Test
+ public void mapsUnitExceptionsToStatus()
+ {
+  final Units units = new Units(true);
+  for (int i = 0; 10 > i; i++)
+   units.addWorkUnit(i);
+  units.run();
+  assertEquals(Status.BAD_UNIT, units.getLocalStatus());
+  assertEquals(3, units.getFailedUnitCount());
+  assertEquals(Status.BAD_UNIT.ordinal(), units.getStatusCode());
+ }
+
+ @Test
+ public void failsUnitsWithUnmappedExceptions()
+ {
+  final Units units = new Units(false);
+  for (int i = 0; 10 > i; i++)
+   units.addWorkUnit(i);
+  try
+  {
+   units.run();
+   fail("Unmapped exceptions of units were ignored");
+  }
+  catch (UnsupportedOperationException expected) {}
+  assertEquals(3, units.getFailedUnitCount());
+ }
+
+ @Test
+ public void rethrowsErrorsOfUnits()
+ {
+  final Units units = new Units(true);
+  for (int i : new int[] { 1, 2, -3, 5, 6 })
+   units.addWorkUnit(i);
+  try
+  {
+   units.run();
+   fail("Error of a unit was lost");
+  }
+  catch (AssertionError expected)
+  {
+   assertEquals("Unit -3 is broken", expected.getMessage());
+  }
+  assertEquals(5, units.getProcessedUnitCount());
+  assertEquals(1, units.getFailedUnitCount());
+ }
+
+ @Test
+ public void processesAddedUnitsOnce()
+ {
+  final Units units = new Units(true);
+  units.addWorkUnit(1);
+  units.run();
+  assertEquals(1, units.getProcessedUnitCount());
+  units.run();
+  assertEquals(0, units.getProcessedUnitCount());
+ }
+
+ public enum Status
+ {
+  OK, BAD_UNIT
+ }
+
+ /**
+  * Fails the units divisible by 4 with an exception, and
+  * negative units with an error.
+  */
+ public static class Units extends PartitionedApplicationBean<Status, Integer>
+ {
+  @Override
+  protected Status runUnit(Integer unit) throws ApplicationBeanException
+  {
+   if (0 > unit)
+    throw new AssertionError("Unit " + unit + " is broken");
+   if (0 == unit % 4)
+    throw new ApplicationBeanException(this, "Unit " + unit + " failed") {};
+   return Status.OK;
+  }
+
+  @Override
+  protected Status getUnitStatus(Integer unit, ApplicationBeanException failure)
+  {
+   return mapsFailures ? Status.BAD_UNIT : super.getUnitStatus(unit, failure);
+  }
+
+  public Units(boolean mapsFailures)
+  {
+   super(Status.OK);
+   this.mapsFailures = mapsFailures;
+   setParallelism(4);
+  }
+
+  private final boolean mapsFailures;
+ }
+}
@@ -0,0 +1,80 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+public class SingletonWarmUpTest
+{
+ @Test(timeout = 10000)
+ public void reportsErrorsAndSkipsDependents()
+ {
+  final DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+  factory.registerBeanDefinition("failing", BeanDefinitionBuilder
+    .genericBeanDefinition(Bean.class).addPropertyValue("fails", true).getBeanDefinition());
+  factory.registerBeanDefinition("dependent", BeanDefinitionBuilder
+    .genericBeanDefinition(Bean.class).addPropertyReference("dependency", "failing")
+    .getBeanDefinition());
+  final Bean dependent = factory.getBean("dependent", Bean.class);
+  try
+  {
+   new SingletonWarmUp(2).warmUp(factory);
+   fail("Failure to warm up a bean was ignored");
+  }
+  catch (BeanInitializationException expected)
+  {
+   assertSame(ERROR, expected.getCause());
+  }
+  assertFalse(dependent.isWarm());
+ }
+
+ public static class Bean implements WarmUpBean
+ {
+  public void warmUp()
+  {
+   if (fails)
+    throw ERROR;
+   warm = true;
+  }
+
+  public boolean isWarm()
+  {
+   return warm;
+  }
+
+  public void setFails(boolean fails)
+  {
+   this.fails = fails;
+  }
+
+  public void setDependency(Bean dependency)
+  {
+  }
+
+  private boolean fails;
+  private volatile boolean warm;
+ }
+
+ private static final Error ERROR = new NoClassDefFoundError("missing");
+}
@@ -0,0 +1,212 @@
+/**
+ *    Copyright © 2014 Konstantin "Stan" Livitski
+ * 
+ *    This file is part of Springlet. Springlet is
+ *    licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package name.livitski.tools.springlet.testing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import name.livitski.tools.springlet.AbstractApplicationBean;
+import name.livitski.tools.springlet.ApplicationBean;
+import name.livitski.tools.springlet.BeanDefinitionTemplate;
+import name.livitski.tools.springlet.Command;
+import name.livitski.tools.springlet.LazyApplicationBean;
+import name.livitski.tools.springlet.Launcher;
+
+import org.junit.Test;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+public class LaunchHarnessTest
+{
+ @Test
+ public void capturesOutputAndStatus()
+ {
+  final LaunchResult result = HARNESS.launch("--greet", "World");
+  assertEquals(0, result.getStatusCode());
+  assertEquals("Hello, World" + NL, result.getOut());
+  assertEquals("Greeted World" + NL, result.getErr());
+  assertEquals(Launcher.RESERVED_EXITCODE_MAX + Greeter.Status.FAILED.ordinal(),
+    HARNESS.launch("--greet", "World", "--fail").getStatusCode());
+  final LaunchResult invalid = HARNESS.launch("--unknown");
+  assertEquals(Launcher.STATUS_COMMAND_PARSING_FAILURE, invalid.getStatusCode());
+  assertEquals("", invalid.getOut());
+  assertFalse(invalid.getLogRecords().isEmpty());
+ }
+
+ @Test(timeout = 30000)
+ public void isolatesParallelLaunches() throws Exception
+ {
+  final ExecutorService pool = Executors.newFixedThreadPool(8);
+  try
+  {
+   final List<Future<LaunchResult>> results = new ArrayList<Future<LaunchResult>>();
+   for (int i = 0; 32 > i; i++)
+   {
+    final String name = "launch-" + i;
+    final boolean fail = 0 == i % 3;
+    results.add(pool.submit(new Callable<LaunchResult>()
+    {
+     public LaunchResult call()
+     {
+      return fail ? HARNESS.launch("--greet", name, "--fail")
+        : HARNESS.launch("--greet", name);
+     }
+    }));
+   }
+   for (int i = 0; results.size() > i; i++)
+   {
+    final LaunchResult result = results.get(i).get();
+    assertEquals(0 == i % 3 ? Launcher.RESERVED_EXITCODE_MAX + Greeter.Status.FAILED.ordinal() : 0,
+      result.getStatusCode());
+    assertEquals("Hello, launch-" + i + NL, result.getOut());
+    assertEquals("Greeted launch-" + i + NL, result.getErr());
+   }
+  }
+  finally
+  {
+   pool.shutdownNow();
+  }
+ }
+
+ private static BeanDefinitionTemplate template()
+ {
+  final DefaultListableBeanFactory definitions = new DefaultListableBeanFactory();
+  definitions.registerBeanDefinition(Launcher.BEAN_NAME_MAIN,
+    BeanDefinitionBuilder.genericBeanDefinition(Greeter.class).getBeanDefinition());
+  for (Class<?> type : new Class<?>[] { Greet.class, Fail.class })
+   definitions.registerBeanDefinition(Launcher.BEAN_NAME_PREFIX_COMMAND
+     + type.getSimpleName().toLowerCase(),
+     BeanDefinitionBuilder.genericBeanDefinition(type).addConstructorArgValue(
+       BeanDefinitionBuilder.genericBeanDefinition(LazyApplicationBean.class)
+       .getBeanDefinition()).getBeanDefinition());
+  return new BeanDefinitionTemplate(definitions);
+ }
+
+ /**
+  * Greets a name on the standard output from a thread it starts,
+  * reports that on the standard error, and fails if requested.
+  */
+ public static class Greeter extends AbstractApplicationBean<Greeter.Status>
+ {
+  public enum Status
+  {
+   OK, FAILED
+  }
+
+  @Override
+  public void run()
+  {
+   final Thread greeting = new Thread()
+   {
+    @Override
+    public void run()
+    {
+     System.out.println("Hello, " + name);
+    }
+   };
+   greeting.start();
+   try
+   {
+    greeting.join();
+    Thread.sleep(20);
+   }
+   catch (InterruptedException interrupt)
+   {
+    Thread.currentThread().interrupt();
+   }
+   System.err.println("Greeted " + name);
+   failed = failing;
+  }
+
+  @Override
+  public Status getLocalStatus()
+  {
+   return failed ? Status.FAILED : Status.OK;
+  }
+
+  public Greeter()
+  {
+   super(Status.OK);
+  }
+
+  private volatile String name;
+  private volatile boolean failing, failed;
+ }
+
+ public static class Greet extends Command
+ {
+  @Override
+  public void process(ListIterator<String> args)
+  {
+   ((Greeter)getApplicationBean()).name = args.next();
+  }
+
+  @Override
+  public String getArgSpec()
+  {
+   return "name";
+  }
+
+  @Override
+  public String getSummary()
+  {
+   return "Sets the name to greet.";
+  }
+
+  public Greet(ApplicationBean applicationBean)
+  {
+   super(applicationBean);
+  }
+ }
+
+ public static class Fail extends Command
+ {
+  @Override
+  public void process(ListIterator<String> args)
+  {
+   ((Greeter)getApplicationBean()).failing = true;
+  }
+
+  @Override
+  public String getArgSpec()
+  {
+   return null;
+  }
+
+  @Override
+  public String getSummary()
+  {
+   return "Makes the application fail after the greeting.";
+  }
+
+  public Fail(ApplicationBean applicationBean)
+  {
+   super(applicationBean);
+  }
+ }
+
+ private static final String NL = System.getProperty("line.separator");
+ private static final LaunchHarness HARNESS = new LaunchHarness(template());
+}